@@ -0,0 +1,214 @@
+package com.o3.server;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class AdmissionFilter extends Filter {
+
+	private static final double BACKOFF_RATIO = 0.9;	// Multiplicative decrease of the adaptive limit
+
+	private final String name;
+	private final int maxLimit;
+	private final int minLimit;
+	private final int maxQueue;
+	private final long queueTimeoutNanos;
+	private final long retryAfter;
+	private final boolean adaptive;
+	private final long latencyTargetNanos;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition released = lock.newCondition();
+	private double limit;	// Current concurrency limit, below maxLimit only when adaptive
+	private int inFlight;
+	private int queued;
+
+	private final AtomicLong admitted = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong timedOut = new AtomicLong();
+
+	/**
+	 * Constructs an admission filter limiting the number of concurrent requests of a context.
+	 *
+	 * @param name          The name of the context, used in log messages.
+	 * @param limit         Maximum number of concurrent requests.
+	 * @param maxQueue      Maximum number of requests waiting for a free slot. Requests beyond it are rejected.
+	 * @param queueTimeout  Maximum time in milliseconds a request waits for a free slot.
+	 * @param retryAfter    Seconds sent to rejected clients in the Retry-After header.
+	 * @param adaptive      Adapts the limit to the observed latency, between 1 and the given limit.
+	 * @param latencyTarget Request latency in milliseconds above which the adaptive limit is decreased.
+	 */
+	public AdmissionFilter(String name, int limit, int maxQueue, long queueTimeout, long retryAfter,
+						   boolean adaptive, long latencyTarget) {
+		if (limit < 1 || maxQueue < 0) {
+			throw new IllegalArgumentException("Invalid admission limits for " + name);
+		}
+		this.name = name;
+		this.maxLimit = limit;
+		this.minLimit = 1;
+		this.maxQueue = maxQueue;
+		this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeout);
+		this.retryAfter = retryAfter;
+		this.adaptive = adaptive;
+		this.latencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(latencyTarget);
+		this.limit = limit;
+	}
+
+	/**
+	 * Creates an admission filter configured with system properties. "admission.name.key" overrides
+	 * "admission.key" for a single context, e.g. -Dadmission.search.limit=32.
+	 *
+	 * @param name The name of the context.
+	 * @return The admission filter.
+	 */
+	public static AdmissionFilter fromProperties(String name) {
+		return new AdmissionFilter(name,
+			Integer.getInteger("admission." + name + ".limit", Integer.getInteger("admission.limit", 64)),
+			Integer.getInteger("admission." + name + ".queue", Integer.getInteger("admission.queue", 128)),
+			Long.getLong("admission." + name + ".queueTimeout", Long.getLong("admission.queueTimeout", 1000)),
+			Long.getLong("admission.retryAfter", 1),
+			Boolean.parseBoolean(System.getProperty("admission." + name + ".adaptive",
+				System.getProperty("admission.adaptive", "false"))),
+			Long.getLong("admission." + name + ".latencyTarget", Long.getLong("admission.latencyTarget", 500)));
+	}
+
+	@Override
+	public String description() {
+		return "Admission control for " + name;
+	}
+
+	/**
+	 * Runs the request if a slot is free or becomes free within the queue timeout. Otherwise the request is
+	 * rejected with 503 and Retry-After without doing any work.
+	 *
+	 * @param exchange The HTTP exchange object containing the request and response.
+	 * @param chain    The rest of the filter chain and the handler.
+	 */
+	@Override
+	public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+		if (!acquire()) {
+			rejected.incrementAndGet();
+			exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfter));
+			Util.sendResponse(exchange, HttpURLConnection.HTTP_UNAVAILABLE,
+				Util.STATUS_MESSAGES.get(HttpURLConnection.HTTP_UNAVAILABLE).getBytes());
+			return;
+		}
+		admitted.incrementAndGet();
+		long start = System.nanoTime();
+		try {
+			chain.doFilter(exchange);
+		} finally {
+			release(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Waits for a free slot.
+	 *
+	 * @return True if the request was admitted, false if the queue is full or the queue timeout passed.
+	 */
+	private boolean acquire() {
+		lock.lock();
+		try {
+			if (inFlight < (int) limit) {
+				inFlight++;
+				return true;
+			}
+			if (queued >= maxQueue) {
+				return false;
+			}
+			queued++;
+			try {
+				long remaining = queueTimeoutNanos;
+				while (inFlight >= (int) limit) {
+					if (remaining <= 0) {
+						timedOut.incrementAndGet();
+						return false;
+					}
+					remaining = released.awaitNanos(remaining);
+				}
+				inFlight++;
+				return true;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			} finally {
+				queued--;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Frees the slot of a finished request. With an adaptive limit, a request slower than the latency target
+	 * decreases the limit multiplicatively and a fast request at full load increases it by one per limit's
+	 * worth of requests (AIMD).
+	 *
+	 * @param latency The time the request took in nanoseconds.
+	 */
+	private void release(long latency) {
+		lock.lock();
+		try {
+			if (adaptive) {
+				if (latency > latencyTargetNanos) {
+					limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+				} else if (inFlight >= (int) limit) {
+					limit = Math.min(maxLimit, limit + 1 / limit);
+				}
+			}
+			inFlight--;
+			released.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getLimit() {
+		lock.lock();
+		try {
+			return (int) limit;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getInFlight() {
+		lock.lock();
+		try {
+			return inFlight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getQueued() {
+		lock.lock();
+		try {
+			return queued;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long getAdmittedCount() {
+		return admitted.get();
+	}
+
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	public long getTimeoutCount() {
+		return timedOut.get();
+	}
+}
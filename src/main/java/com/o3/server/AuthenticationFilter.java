@@ -0,0 +1,159 @@
+package com.o3.server;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+public class AuthenticationFilter extends Filter {
+
+	private final Authenticator authenticator;
+
+	/**
+	 * Constructs a filter authenticating requests with the given authenticator. An authenticator set on the
+	 * context runs before every context filter, so a request failing authentication would skip admission control
+	 * and request metrics. Added after them, this filter lets admission control shed and the metrics count
+	 * requests before the credential check, which may hash a password and query the database.
+	 *
+	 * @param authenticator The authenticator checking the credentials of a request.
+	 */
+	public AuthenticationFilter(Authenticator authenticator) {
+		this.authenticator = authenticator;
+	}
+
+	@Override
+	public String description() {
+		return "Authentication";
+	}
+
+	/**
+	 * Passes an authenticated request on with its principal. Other requests get the response code of the
+	 * authenticator, e.g. 401 with a challenge, without running the handler.
+	 *
+	 * @param exchange The HTTP exchange object containing the request and response.
+	 * @param chain    The rest of the filter chain and the handler.
+	 */
+	@Override
+	public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+		Authenticator.Result result = authenticator.authenticate(exchange);
+		if (result instanceof Authenticator.Success success) {
+			chain.doFilter(new AuthenticatedExchange(exchange, success.getPrincipal()));
+			return;
+		}
+		int responseCode = result instanceof Authenticator.Retry retry
+			? retry.getResponseCode()
+			: ((Authenticator.Failure) result).getResponseCode();
+		// Read the rest of the request, so the connection can be reused
+		try (InputStream body = exchange.getRequestBody()) {
+			body.transferTo(OutputStream.nullOutputStream());
+		}
+		exchange.sendResponseHeaders(responseCode, -1);
+		exchange.close();
+	}
+
+	/**
+	 * Exchange of an authenticated request. The principal of an exchange can only be set by the server,
+	 * so the exchange is wrapped to return it.
+	 */
+	private static class AuthenticatedExchange extends HttpExchange {
+		private final HttpExchange exchange;
+		private final HttpPrincipal principal;
+
+		private AuthenticatedExchange(HttpExchange exchange, HttpPrincipal principal) {
+			this.exchange = exchange;
+			this.principal = principal;
+		}
+
+		@Override
+		public HttpPrincipal getPrincipal() {
+			return principal;
+		}
+
+		@Override
+		public Headers getRequestHeaders() {
+			return exchange.getRequestHeaders();
+		}
+
+		@Override
+		public Headers getResponseHeaders() {
+			return exchange.getResponseHeaders();
+		}
+
+		@Override
+		public URI getRequestURI() {
+			return exchange.getRequestURI();
+		}
+
+		@Override
+		public String getRequestMethod() {
+			return exchange.getRequestMethod();
+		}
+
+		@Override
+		public HttpContext getHttpContext() {
+			return exchange.getHttpContext();
+		}
+
+		@Override
+		public void close() {
+			exchange.close();
+		}
+
+		@Override
+		public InputStream getRequestBody() {
+			return exchange.getRequestBody();
+		}
+
+		@Override
+		public OutputStream getResponseBody() {
+			return exchange.getResponseBody();
+		}
+
+		@Override
+		public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+			exchange.sendResponseHeaders(rCode, responseLength);
+		}
+
+		@Override
+		public InetSocketAddress getRemoteAddress() {
+			return exchange.getRemoteAddress();
+		}
+
+		@Override
+		public int getResponseCode() {
+			return exchange.getResponseCode();
+		}
+
+		@Override
+		public InetSocketAddress getLocalAddress() {
+			return exchange.getLocalAddress();
+		}
+
+		@Override
+		public String getProtocol() {
+			return exchange.getProtocol();
+		}
+
+		@Override
+		public Object getAttribute(String name) {
+			return exchange.getAttribute(name);
+		}
+
+		@Override
+		public void setAttribute(String name, Object value) {
+			exchange.setAttribute(name, value);
+		}
+
+		@Override
+		public void setStreams(InputStream i, OutputStream o) {
+			exchange.setStreams(i, o);
+		}
+	}
+}
@@ -0,0 +1,285 @@
+package com.o3.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.security.Principal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import static com.o3.server.Util.sendResponse;
+
+public class BulkObservationHandler implements HttpHandler {
+
+	public static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
+	private static final int batchSize = Integer.getInteger("bulk.batchSize", 100);
+
+	private final MessageDataBase database;
+	private final ObservationHandler parser;
+	private final EnrichmentWorker enrichmentWorker;
+
+	/**
+	 * Parsed records of the current batch waiting to be inserted, with the request line of each record.
+	 */
+	private static class Batch {
+		private final List<ObservationRecord> records = new ArrayList<>(batchSize);
+		private final List<Integer> lines = new ArrayList<>(batchSize);
+		private final boolean[] queueDescription = new boolean[batchSize];
+
+		private void add(int line, ObservationRecord record, boolean deferDescription) {
+			queueDescription[records.size()] = deferDescription;
+			records.add(record);
+			lines.add(line);
+		}
+
+		private boolean isFull() {
+			return records.size() == batchSize;
+		}
+
+		private void clear() {
+			records.clear();
+			lines.clear();
+		}
+	}
+
+	/**
+	 * Constructor to initialize the BulkObservationHandler. Records are validated with the same rules as
+	 * single records posted to the observation handler.
+	 *
+	 * @param dbName The name of the database file.
+	 * @param ws     The weather service instance for fetching weather data.
+	 * @param worker The background AI description worker, or null to summarize during the request.
+	 */
+	public BulkObservationHandler(String dbName, WeatherService ws, EnrichmentWorker worker)
+		throws SQLException, IOException {
+		database = MessageDataBase.getInstance(dbName);
+		parser = new ObservationHandler(dbName, ws, worker);
+		enrichmentWorker = worker;
+	}
+
+	/**
+	 * Handles bulk uploads of observation records. The request body is either newline-delimited JSON
+	 * ("application/x-ndjson") or a JSON array ("application/json"). The response is newline-delimited JSON
+	 * with one result per record, streamed as the records are inserted.
+	 *
+	 * @param exchange The HTTP exchange object containing the request and response.
+	 */
+	@Override
+	public void handle(HttpExchange exchange) {
+		try {
+			if (!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+				Util.notSupported(exchange);
+				return;
+			}
+			String contentType = Util.getContentType(exchange.getRequestHeaders());
+			if (contentType.equals(NDJSON_CONTENT_TYPE) || contentType.equals("application/json")) {
+				postHandler(exchange, contentType.equals(NDJSON_CONTENT_TYPE));
+			} else {
+				sendResponse(exchange, HttpURLConnection.HTTP_BAD_REQUEST, "Incorrect Content-Type".getBytes());
+			}
+		} catch (AccessDeniedException ade) {
+			System.err.println("Authentication error in bulk observation handler: " + ade.getMessage());
+			sendResponse(exchange, HttpURLConnection.HTTP_UNAUTHORIZED,
+				Util.STATUS_MESSAGES.get(HttpURLConnection.HTTP_UNAUTHORIZED).getBytes());
+		} catch (UncheckedIOException uioe) {
+			// An aborted response, the server closes the connection
+			throw uioe;
+		} catch (Exception e) {
+			System.err.println("Unhandled server error in bulk observation handler: " + e.getMessage());
+			sendResponse(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR);
+		}
+	}
+
+	/**
+	 * Handles POST requests with many observation records. Records are parsed one at a time and inserted
+	 * in batches, so only one batch of records is held in memory regardless of the upload size.
+	 *
+	 * @param exchange The HTTP exchange object containing the request and response.
+	 * @param ndjson   True if the body is newline-delimited JSON, false if it is a JSON array.
+	 * @throws AccessDeniedException If the user is not authorized.
+	 */
+	private void postHandler(HttpExchange exchange, boolean ndjson) throws AccessDeniedException {
+		String username = getUsername(exchange);
+		exchange.getResponseHeaders().set("Content-Type", NDJSON_CONTENT_TYPE);
+		ChunkedResponseStream body = new ChunkedResponseStream(exchange, HttpURLConnection.HTTP_OK);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8));
+		try (BufferedReader br = new BufferedReader(
+				new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+
+			Batch batch = new Batch();
+			if (ndjson) {
+				readLines(br, username, batch, writer);
+			} else {
+				readArray(br, username, batch, writer);
+			}
+			insertBatch(batch, writer);
+			// Error results of invalid records may still be buffered, only a body without records is empty
+			writer.flush();
+			if (!body.isCommitted()) {
+				sendResponse(exchange, HttpURLConnection.HTTP_BAD_REQUEST, "Request body is empty".getBytes());
+			} else {
+				// The response is ended only after every record has its result
+				writer.close();
+			}
+
+		} catch (IOException ioe) {
+			System.err.println("File error in reading (POST) bulk request body: " + ioe.getMessage());
+			if (body.abort()) {
+				sendResponse(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR,
+					Util.STATUS_MESSAGES.get(HttpURLConnection.HTTP_INTERNAL_ERROR).getBytes());
+			}
+		} catch (SQLException SQLe) {
+			System.err.println("SQL error in adding bulk messages: " + SQLe.getMessage());
+			if (body.abort()) {
+				sendResponse(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR,
+					Util.STATUS_MESSAGES.get(HttpURLConnection.HTTP_INTERNAL_ERROR).getBytes());
+			}
+		}
+	}
+
+	/**
+	 * Reads newline-delimited JSON records. Empty lines are skipped and an invalid line does not stop the upload.
+	 */
+	private void readLines(BufferedReader br, String username, Batch batch, Writer writer)
+		throws IOException, SQLException {
+		String text;
+		int line = 0;
+		while ((text = br.readLine()) != null) {
+			line++;
+			if (text.isBlank()) {
+				continue;
+			}
+			try {
+				addRecord(new JSONObject(text), line, username, batch, writer);
+			} catch (JSONException je) {
+				writeResult(writer, line, -1, "Invalid JSON format!");
+			}
+		}
+	}
+
+	/**
+	 * Reads the elements of a JSON array one at a time. The result line of an element is its position in the
+	 * array. A syntax error ends the upload, since the rest of the array cannot be read reliably.
+	 */
+	private void readArray(BufferedReader br, String username, Batch batch, Writer writer)
+		throws IOException, SQLException {
+		JSONTokener tokener = new JSONTokener(br);
+		int line = 0;
+		try {
+			if (tokener.nextClean() != '[') {
+				throw tokener.syntaxError("A JSON array text must start with '['");
+			}
+			if (tokener.nextClean() == ']') {
+				return;
+			}
+			tokener.back();
+			while (true) {
+				Object value = tokener.nextValue();
+				line++;
+				if (value instanceof JSONObject jsonObject) {
+					addRecord(jsonObject, line, username, batch, writer);
+				} else {
+					writeResult(writer, line, -1, "Invalid JSON format!");
+				}
+				char next = tokener.nextClean();
+				if (next == ']') {
+					return;
+				}
+				if (next != ',') {
+					throw tokener.syntaxError("Expected a ',' or ']'");
+				}
+			}
+		} catch (JSONException je) {
+			System.err.println("Invalid (POST) bulk JSON format: " + je.getMessage());
+			insertBatch(batch, writer);
+			// Elements up to line already have a result
+			writeResult(writer, line + 1, -1, "Invalid JSON format!");
+		}
+	}
+
+	/**
+	 * Validates a record and adds it to the batch, inserting the batch when it is full.
+	 * A record failing validation gets its error result immediately.
+	 */
+	private void addRecord(JSONObject jsonObject, int line, String username, Batch batch, Writer writer)
+		throws IOException, SQLException {
+		try {
+			boolean deferDescription = enrichmentWorker != null && jsonObject.optString("recordDescription").isEmpty();
+			ObservationRecord record = parser.parseMessage(jsonObject, username, deferDescription);
+			batch.add(line, record, deferDescription);
+		} catch (JSONException je) {
+			writeResult(writer, line, -1, "Invalid JSON format: " + je.getMessage());
+			return;
+		} catch (RuntimeException e) {
+			writeResult(writer, line, -1, e.getMessage() != null ? e.getMessage() : "Invalid record!");
+			return;
+		}
+		if (batch.isFull()) {
+			insertBatch(batch, writer);
+		}
+	}
+
+	/**
+	 * Inserts the records of the batch in one transaction and writes their results.
+	 */
+	private void insertBatch(Batch batch, Writer writer) throws IOException, SQLException {
+		if (batch.records.isEmpty()) {
+			return;
+		}
+		int[] recordIds = database.insertRecords(batch.records, batch.queueDescription);
+		boolean queued = false;
+		for (int i = 0; i < recordIds.length; i++) {
+			writeResult(writer, batch.lines.get(i), recordIds[i], "Database error!");
+			queued |= recordIds[i] != -1 && batch.queueDescription[i];
+		}
+		if (queued) {
+			enrichmentWorker.wakeUp();
+		}
+		writer.flush();
+		batch.clear();
+	}
+
+	/**
+	 * Writes the result of a single record as one line of JSON.
+	 *
+	 * @param writer   The response writer.
+	 * @param line     The line of the record in the request.
+	 * @param recordId The id of the inserted record, or -1 if the record was not inserted.
+	 * @param error    The error message used if the record was not inserted.
+	 */
+	private void writeResult(Writer writer, int line, int recordId, String error) throws IOException {
+		JSONObject result = new JSONObject();
+		result.put("line", line);
+		if (recordId != -1) {
+			result.put("status", "OK");
+			result.put("id", recordId);
+		} else {
+			result.put("status", "ERROR");
+			result.put("error", error);
+		}
+		writer.write(result.toString());
+		writer.write('\n');
+	}
+
+	private String getUsername(HttpExchange exchange) throws AccessDeniedException {
+		Principal principal = exchange.getPrincipal();
+		if (principal != null && principal.getName().contains(":")) {
+			return principal.getName().split(":", 2)[1];
+		}
+		throw new AccessDeniedException("Invalid username:password string!");
+	}
+}
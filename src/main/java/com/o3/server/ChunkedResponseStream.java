@@ -0,0 +1,279 @@
+package com.o3.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class ChunkedResponseStream extends OutputStream {
+
+	private static final boolean compressionEnabled =
+		Boolean.parseBoolean(System.getProperty("http.compression", "true"));
+	private static final int compressionThreshold = Integer.getInteger("http.compressionThreshold", 1024);	// Bytes
+	private static final int compressionLevel = Integer.getInteger("http.compressionLevel", Deflater.DEFAULT_COMPRESSION);
+
+	// Metrics
+	private static final LongAdder compressedResponses = new LongAdder();
+	private static final LongAdder uncompressedBytes = new LongAdder();
+	private static final LongAdder compressedBytes = new LongAdder();
+
+	private final HttpExchange exchange;
+	private final int respCode;
+	private final String encoding;
+	private byte[] buffer;	// Start of the body while deciding on compression
+	private int buffered;
+	private OutputStream body;
+	private CountingStream compressedBody;
+	private Deflater deflater;
+	private long written;
+
+	/**
+	 * Constructs a response body stream using chunked transfer encoding. The response headers are sent
+	 * on the first write, so an error response can still be sent if nothing has been written yet.
+	 *
+	 * @param exchange The HTTP exchange object containing the request and response.
+	 * @param respCode The HTTP response code to send.
+	 */
+	public ChunkedResponseStream(HttpExchange exchange, int respCode) {
+		this(exchange, respCode, null);
+	}
+
+	/**
+	 * Constructs a response body stream compressing the body as it is written. The start of the body is buffered
+	 * up to the compression threshold: a body ending before the threshold is sent uncompressed with a fixed length,
+	 * a longer body is sent compressed using chunked transfer encoding.
+	 *
+	 * @param exchange The HTTP exchange object containing the request and response.
+	 * @param respCode The HTTP response code to send.
+	 * @param encoding The content coding accepted by the client, "gzip" or "deflate", or null for no compression.
+	 */
+	public ChunkedResponseStream(HttpExchange exchange, int respCode, String encoding) {
+		this.exchange = exchange;
+		this.respCode = respCode;
+		this.encoding = encoding;
+	}
+
+	/**
+	 * Chooses the content coding of a response from the "Accept-Encoding" request header.
+	 * Gzip is preferred over deflate, codings with "q=0" are not accepted. A "*" entry covers only the codings
+	 * not named in the header, so an explicitly refused coding stays refused. Adds "Vary: Accept-Encoding" to
+	 * the response headers, since the representation depends on the header even when it is not compressed.
+	 *
+	 * @param exchange The HTTP exchange object containing the request and response.
+	 * @return "gzip", "deflate", or null if the client accepts neither or compression is disabled.
+	 */
+	public static String negotiateEncoding(HttpExchange exchange) {
+		if (!compressionEnabled) {
+			return null;
+		}
+		exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+		Map<String, Boolean> accepted = new HashMap<>();
+		for (String header : exchange.getRequestHeaders().getOrDefault("Accept-Encoding", List.of())) {
+			for (String part : header.split(",")) {
+				String[] params = part.trim().split(";");
+				String coding = params[0].trim().toLowerCase();
+				if (coding.equals("x-gzip")) {
+					coding = "gzip";
+				}
+				accepted.put(coding, isAcceptable(params));
+			}
+		}
+		for (String coding : List.of("gzip", "deflate")) {
+			if (accepted.getOrDefault(coding, accepted.getOrDefault("*", false))) {
+				return coding;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks the quality value of an "Accept-Encoding" entry.
+	 *
+	 * @param params The coding of the entry followed by its parameters.
+	 * @return False if the quality value is zero or invalid, true otherwise.
+	 */
+	private static boolean isAcceptable(String[] params) {
+		for (int i = 1; i < params.length; i++) {
+			String param = params[i].trim().replace(" ", "");
+			if (param.startsWith("q=")) {
+				try {
+					return Double.parseDouble(param.substring(2)) > 0;
+				} catch (NumberFormatException e) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the response headers have already been sent.
+	 *
+	 * @return True if the response is committed, false otherwise.
+	 */
+	public boolean isCommitted() {
+		return body != null;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[]{(byte) b}, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		written += len;
+		if (body == null && encoding != null) {
+			if (buffer == null) {
+				buffer = new byte[compressionThreshold];
+			}
+			if (buffered + len <= buffer.length) {
+				System.arraycopy(b, off, buffer, buffered, len);
+				buffered += len;
+				return;
+			}
+			openCompressed();
+		}
+		open().write(b, off, len);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (body != null) {
+			body.flush();
+		}
+	}
+
+	/**
+	 * Ends the response. A buffered body is sent uncompressed. Does nothing if nothing has been written.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (body == null && buffered > 0) {
+			exchange.sendResponseHeaders(respCode, buffered);
+			body = exchange.getResponseBody();
+			body.write(buffer, 0, buffered);
+		}
+		if (body != null) {
+			body.close();
+			if (compressedBody != null) {
+				compressedResponses.increment();
+				uncompressedBytes.add(written);
+				compressedBytes.add(compressedBody.count);
+			}
+		}
+	}
+
+	/**
+	 * Abandons the response after an error. If nothing has been sent, the buffered body is dropped, so an error
+	 * response can be sent instead. Otherwise the body cannot be ended cleanly: an UncheckedIOException is thrown,
+	 * which must escape the handler, so the server closes the connection without the final chunk and the client
+	 * sees an incomplete response instead of a complete looking truncated body.
+	 *
+	 * @return True if nothing has been sent and an error response can be sent.
+	 * @throws UncheckedIOException If the response has already been committed.
+	 */
+	public boolean abort() {
+		buffer = null;
+		buffered = 0;
+		if (deflater != null) {
+			deflater.end();
+		}
+		if (body == null) {
+			return true;
+		}
+		throw new UncheckedIOException(new IOException("Response aborted after " + written + " bytes"));
+	}
+
+	private OutputStream open() throws IOException {
+		if (body == null) {
+			exchange.sendResponseHeaders(respCode, 0);
+			body = exchange.getResponseBody();
+		}
+		return body;
+	}
+
+	/**
+	 * Sends the headers of a compressed response and writes the buffered start of the body to the compressor.
+	 */
+	private void openCompressed() throws IOException {
+		exchange.getResponseHeaders().set("Content-Encoding", encoding);
+		exchange.sendResponseHeaders(respCode, 0);
+		compressedBody = new CountingStream(exchange.getResponseBody());
+		if (encoding.equals("gzip")) {
+			body = new GZIPOutputStream(compressedBody, 8192, true) {
+				{
+					def.setLevel(compressionLevel);
+					deflater = def;
+				}
+			};
+		} else {
+			deflater = new Deflater(compressionLevel);
+			body = new DeflaterOutputStream(compressedBody, deflater, 8192, true) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						deflater.end();
+					}
+				}
+			};
+		}
+		body.write(buffer, 0, buffered);
+		buffer = null;
+	}
+
+	/**
+	 * Counts the compressed bytes sent.
+	 */
+	private static class CountingStream extends OutputStream {
+		private final OutputStream out;
+		private long count;
+
+		private CountingStream(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+
+	public static long getCompressedResponseCount() {
+		return compressedResponses.sum();
+	}
+
+	public static long getUncompressedBytes() {
+		return uncompressedBytes.sum();
+	}
+
+	public static long getCompressedBytes() {
+		return compressedBytes.sum();
+	}
+}
@@ -0,0 +1,124 @@
+package com.o3.server;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CredentialCache {
+
+	private final int maxEntries;
+	private final long ttlMillis;
+	private final byte[] salt;		// Per-process salt so plain credential digests are never kept in memory.
+	private final Map<String, Entry> entries;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private record Entry(byte[] digest, long expiresAt) {
+	}
+
+	/**
+	 * Constructs a bounded credential cache with the given size and time-to-live.
+	 *
+	 * @param maxEntries Maximum number of cached users, least recently used are evicted first.
+	 * @param ttlMillis  Time in milliseconds a successful verification stays valid.
+	 */
+	public CredentialCache(int maxEntries, long ttlMillis) {
+		this.maxEntries = maxEntries;
+		this.ttlMillis = ttlMillis;
+		this.salt = new byte[16];
+		new SecureRandom().nextBytes(salt);
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > CredentialCache.this.maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Checks if the given credentials have been successfully verified recently.
+	 *
+	 * @param username The username.
+	 * @param password The plain text password.
+	 * @return True if a fresh matching verification is cached, false otherwise.
+	 */
+	public boolean isVerified(String username, String password) {
+		byte[] digest = digest(username, password);
+		long now = System.currentTimeMillis();
+		synchronized (entries) {
+			Entry entry = entries.get(username);
+			if (entry != null) {
+				if (entry.expiresAt() < now) {
+					entries.remove(username);
+				} else if (MessageDigest.isEqual(entry.digest(), digest)) {
+					hits.incrementAndGet();
+					return true;
+				}
+			}
+		}
+		misses.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Stores a successful verification of the given credentials.
+	 *
+	 * @param username The username.
+	 * @param password The plain text password.
+	 */
+	public void putVerified(String username, String password) {
+		Entry entry = new Entry(digest(username, password), System.currentTimeMillis() + ttlMillis);
+		synchronized (entries) {
+			entries.put(username, entry);
+		}
+	}
+
+	/**
+	 * Removes the cached verification of a user, e.g. after the user's password has changed.
+	 *
+	 * @param username The username to invalidate.
+	 */
+	public void invalidate(String username) {
+		synchronized (entries) {
+			entries.remove(username);
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * Calculates a salted SHA-256 digest of the username and password.
+	 *
+	 * @param username The username.
+	 * @param password The plain text password.
+	 * @return The digest bytes.
+	 */
+	private byte[] digest(String username, String password) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			md.update(salt);
+			md.update(username.getBytes(StandardCharsets.UTF_8));
+			md.update((byte) 0);
+			md.update(password.getBytes(StandardCharsets.UTF_8));
+			return md.digest();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available!", e);
+		}
+	}
+}
@@ -0,0 +1,4 @@
+package com.o3.server;
+
+public record EnrichmentJob(int recordId, String payload, int attempts) {
+}
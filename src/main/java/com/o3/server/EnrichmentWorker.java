@@ -0,0 +1,105 @@
+package com.o3.server;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class EnrichmentWorker {
+
+	public static final String PENDING_DESCRIPTION = "Pending AI description";
+	public static final String STATUS_PENDING = "PENDING";
+	public static final String STATUS_DONE = "DONE";
+	public static final String STATUS_FAILED = "FAILED";
+	public static final String STATUS_CANCELLED = "CANCELLED";
+
+	private static final int maxAttempts = 3;
+	private static final int batchSize = 10;
+	private static final long pollInterval = 30;	// Seconds
+	private static final long retryDelay = 60;	// Seconds before the second attempt, doubled after each failure
+
+	private final MessageDataBase database;
+	private final ScheduledExecutorService executor;
+	private final AtomicBoolean wakeUpQueued = new AtomicBoolean();
+
+	/**
+	 * Constructor to initialize the EnrichmentWorker with a database.
+	 *
+	 * @param dbName The name of the database file.
+	 */
+	public EnrichmentWorker(String dbName) throws SQLException, IOException {
+		database = MessageDataBase.getInstance(dbName);
+		executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "enrichment-worker");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts processing jobs. Jobs left pending from an earlier run are picked up on the first poll.
+	 */
+	public void start() {
+		executor.scheduleWithFixedDelay(this::processPending, 0, pollInterval, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Wakes up the worker after a record has been queued with MessageDataBase.insertRecord. Wake-ups are
+	 * coalesced: while a scan is queued, further wake-ups add nothing, since the queued scan sees the new jobs.
+	 */
+	public void wakeUp() {
+		if (wakeUpQueued.compareAndSet(false, true)) {
+			executor.execute(() -> {
+				// Cleared before scanning, so jobs queued during the scan get another wake-up
+				wakeUpQueued.set(false);
+				processPending();
+			});
+		}
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Generates descriptions for due pending jobs until none are left. Jobs postponed for a retry are picked up
+	 * by a later poll.
+	 */
+	private void processPending() {
+		try {
+			List<EnrichmentJob> jobs;
+			while (!(jobs = database.getPendingEnrichmentJobs(batchSize)).isEmpty()) {
+				for (EnrichmentJob job : jobs) {
+					process(job);
+				}
+			}
+		} catch (SQLException e) {
+			System.err.println("SQL error in AI description worker: " + e.getMessage());
+		} catch (Exception e) {
+			System.err.println("Unhandled error in AI description worker: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Generates and stores the description of a single record. The record keeps its update reason and
+	 * modification time, so the generated description does not show up as a user modification.
+	 * A failed attempt is retried after an exponentially growing delay, so a missing or overloaded model
+	 * does not use up every attempt at once. After the last attempt the pending description is cleared.
+	 *
+	 * @param job The job to process.
+	 */
+	private void process(EnrichmentJob job) throws SQLException {
+		String summary = LLMService.summarize(job.payload());
+		boolean failed = summary.equals("N/A");
+		if (failed && job.attempts() + 1 < maxAttempts) {
+			long delay = TimeUnit.SECONDS.toMillis(retryDelay) << job.attempts();
+			database.retryEnrichment(job.recordId(), System.currentTimeMillis() + delay);
+			return;
+		}
+		// Written only if the job is still pending, so a description written by the owner meanwhile is kept
+		database.completeEnrichment(job.recordId(), failed ? STATUS_FAILED : STATUS_DONE, failed ? "" : summary);
+	}
+}
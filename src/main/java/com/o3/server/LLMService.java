@@ -2,56 +2,243 @@ package com.o3.server;
 
 import com.hexadevlabs.gpt4all.LLModel;
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class LLMService {
 
+	private static final String modelFileName = "ggml-model-gpt4all-falcon-q4_0.bin";	// Change this if using any other model
+	private static final int poolSize = Integer.getInteger("llm.poolSize", 1);
+	private static final long waitTimeout = Long.getLong("llm.waitTimeout", 60000);	// Milliseconds
+
+	// Loaded models not currently generating. At most poolSize models are ever loaded.
+	private static final BlockingQueue<LLModel> idleModels = new LinkedBlockingQueue<>();
+	private static final AtomicInteger loadedModels = new AtomicInteger();
+
+	// Metrics
+	private static final AtomicInteger waiting = new AtomicInteger();
+	private static final AtomicLong generations = new AtomicLong();
+	private static final AtomicLong generationNanos = new AtomicLong();
+	private static final LatencyHistogram generationLatency = new LatencyHistogram(LatencyHistogram.SLOW_BUCKETS);
+	private static final AtomicLong timeouts = new AtomicLong();
+
+	private static volatile SummaryCache summaryCache;
+
 	public LLMService() {
 	}
 
 	/**
-	 * Summarizes the given input text using a local LLM.
+	 * Enables the persistent summary cache, so identical inputs are summarized only once.
+	 *
+	 * @param dbName The name of the database file.
+	 */
+	public static void enableSummaryCache(String dbName) throws SQLException, IOException {
+		summaryCache = new SummaryCache(dbName, modelFileName, 256);
+	}
+
+	public static SummaryCache getSummaryCache() {
+		return summaryCache;
+	}
+
+	/**
+	 * Summarizes the given input text using a local LLM. Uses a resident model from the model pool and
+	 * waits for a free model at most the configured wait timeout. Summaries are served from the summary
+	 * cache when it is enabled.
 	 *
 	 * @param input The input string to summarize.
 	 * @return A short description of the input text, or "N/A" if an error occurs.
 	 */
 	public static String summarize(String input) {
-
-		String prompt = "Give very short description about the following text \"";
-
-		// Limit input size
-		// Falcon model seems to struggle (possibly running out of memory?) with 500+ chars long input strings
-		if (input.length() > 400) {
-			prompt += input.substring(0, 400) + "\"";
-		} else {
-			prompt += input + "\"";
+		String truncated = truncateInput(input);
+		SummaryCache cache = summaryCache;
+		if (cache != null) {
+			String cached = cache.get(truncated);
+			if (cached != null) {
+				return cached;
+			}
 		}
-
-		// Set model name and path
-		String modelFileName = "ggml-model-gpt4all-falcon-q4_0.bin";	// Change this if using any other model
-		String projectPath = System.getProperty("user.dir");
-		String modelFilePath = projectPath + "/models/" + modelFileName;
+		String prompt = buildPrompt(truncated);
 
 		// Check if model exists
-		File file = new File(modelFilePath);
-		if (!file.exists()) {
+		if (!new File(getModelFilePath()).exists()) {
 			System.err.println("Missing model or incorrect model name!");
 			return "N/A";
 		}
 
-		try (LLModel model = new LLModel(Path.of(modelFilePath))) {
+		LLModel model = null;
+		try {
+			model = acquireModel();
+			if (model == null) {
+				timeouts.incrementAndGet();
+				System.err.println("Timeout while waiting for a free LLM model!");
+				return "N/A";
+			}
+
 			LLModel.GenerationConfig config = LLModel.config()
 				.withRepeatPenalty(5)
 				.withNCtx(4096)
 				.withNPredict(4096)
 				.build();
 
-			return model.generate(prompt, config, false).trim();
+			long start = System.nanoTime();
+			String summary = model.generate(prompt, config, false).trim();
+			long elapsed = System.nanoTime() - start;
+			generationNanos.addAndGet(elapsed);
+			generationLatency.record(elapsed);
+			generations.incrementAndGet();
+			if (cache != null && !summary.isEmpty()) {
+				cache.put(truncated, summary, TimeUnit.NANOSECONDS.toMillis(elapsed));
+			}
+			return summary;
 
 		} catch (Exception e) {
 			System.err.println("Error on generating summary: " + e.getMessage());
 			return "N/A";
+		} finally {
+			if (model != null) {
+				idleModels.offer(model);
+			}
+		}
+	}
+
+	/**
+	 * Loads the model pool in a background thread, so first summaries do not pay the model load.
+	 */
+	public static void warmUp() {
+		if (!new File(getModelFilePath()).exists()) {
+			System.err.println("Missing model or incorrect model name, LLM pool not warmed!");
+			return;
+		}
+		Thread warmer = new Thread(() -> {
+			try {
+				while (loadedModels.get() < poolSize) {
+					LLModel model = loadModel();
+					if (model == null) {
+						break;
+					}
+					idleModels.offer(model);
+				}
+				System.out.println("LLM model pool ready: " + loadedModels.get() + " model(s)");
+			} catch (Exception e) {
+				System.err.println("Error on warming LLM model pool: " + e.getMessage());
+			}
+		}, "llm-warmup");
+		warmer.setDaemon(true);
+		warmer.start();
+	}
+
+	/**
+	 * Closes all idle models of the pool.
+	 */
+	public static void shutdown() {
+		LLModel model;
+		while ((model = idleModels.poll()) != null) {
+			try {
+				model.close();
+			} catch (Exception e) {
+				System.err.println("Error on closing LLM model: " + e.getMessage());
+			}
+			loadedModels.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Takes a model from the pool, loading a new one if the pool is not yet full.
+	 *
+	 * @return A loaded model, or null if no model became free within the wait timeout.
+	 */
+	private static LLModel acquireModel() throws InterruptedException {
+		LLModel model = idleModels.poll();
+		if (model != null) {
+			return model;
+		}
+		model = loadModel();
+		if (model != null) {
+			return model;
+		}
+		waiting.incrementAndGet();
+		try {
+			return idleModels.poll(waitTimeout, TimeUnit.MILLISECONDS);
+		} finally {
+			waiting.decrementAndGet();
 		}
 	}
 
+	/**
+	 * Loads a new model if the pool size allows it.
+	 *
+	 * @return The loaded model, or null if the pool is already full.
+	 */
+	private static LLModel loadModel() {
+		int loaded;
+		do {
+			loaded = loadedModels.get();
+			if (loaded >= poolSize) {
+				return null;
+			}
+		} while (!loadedModels.compareAndSet(loaded, loaded + 1));
+
+		try {
+			return new LLModel(Path.of(getModelFilePath()));
+		} catch (Exception e) {
+			loadedModels.decrementAndGet();
+			throw e;
+		}
+	}
+
+	/**
+	 * Limits the input size given to the model.
+	 * Falcon model seems to struggle (possibly running out of memory?) with 500+ chars long input strings
+	 *
+	 * @param input The input string to summarize.
+	 * @return The input truncated to at most 400 characters.
+	 */
+	private static String truncateInput(String input) {
+		if (input.length() > 400) {
+			return input.substring(0, 400);
+		}
+		return input;
+	}
+
+	/**
+	 * Builds the summary prompt from the truncated input text.
+	 *
+	 * @param input The truncated input string to summarize.
+	 * @return The prompt given to the model.
+	 */
+	private static String buildPrompt(String input) {
+		return "Give very short description about the following text \"" + input + "\"";
+	}
+
+	private static String getModelFilePath() {
+		String projectPath = System.getProperty("user.dir");
+		return projectPath + "/models/" + modelFileName;
+	}
+
+	public static int getQueueDepth() {
+		return waiting.get();
+	}
+
+	public static long getGenerationCount() {
+		return generations.get();
+	}
+
+	public static long getGenerationTimeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(generationNanos.get());
+	}
+
+	public static LatencyHistogram getGenerationLatency() {
+		return generationLatency;
+	}
+
+	public static long getTimeoutCount() {
+		return timeouts.get();
+	}
+
 }
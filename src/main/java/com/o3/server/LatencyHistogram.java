@@ -0,0 +1,81 @@
+package com.o3.server;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram {
+
+	// Default upper bounds of the buckets in seconds
+	public static final double[] DEFAULT_BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+	// Buckets of LLM generations, which take seconds
+	public static final double[] SLOW_BUCKETS = {0.1, 0.5, 1, 2.5, 5, 10, 20, 30, 60, 120};
+
+	private final double[] bounds;
+	private final long[] boundNanos;
+	private final AtomicLongArray buckets;	// Count of each bucket, the last bucket is +Inf
+	private final LongAdder sumNanos = new LongAdder();
+
+	/**
+	 * Constructs a latency histogram with fixed buckets. Recording is lock-free and does not allocate.
+	 *
+	 * @param bounds The upper bounds of the buckets in seconds, in increasing order.
+	 */
+	public LatencyHistogram(double[] bounds) {
+		this.bounds = bounds.clone();
+		this.boundNanos = new long[bounds.length];
+		for (int i = 0; i < bounds.length; i++) {
+			boundNanos[i] = (long) (bounds[i] * TimeUnit.SECONDS.toNanos(1));
+		}
+		this.buckets = new AtomicLongArray(bounds.length + 1);
+	}
+
+	public LatencyHistogram() {
+		this(DEFAULT_BUCKETS);
+	}
+
+	/**
+	 * Records a single observation.
+	 *
+	 * @param nanos The observed latency in nanoseconds.
+	 */
+	public void record(long nanos) {
+		int i = 0;
+		while (i < boundNanos.length && nanos > boundNanos[i]) {
+			i++;
+		}
+		buckets.incrementAndGet(i);
+		sumNanos.add(nanos);
+	}
+
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < buckets.length(); i++) {
+			count += buckets.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * Writes the histogram in the Prometheus text format, without the HELP and TYPE lines.
+	 *
+	 * @param writer The writer to write to.
+	 * @param name   The metric name.
+	 * @param labels The labels of the series, e.g. "path=\"/search\"", or an empty string.
+	 */
+	public void write(Writer writer, String name, String labels) throws IOException {
+		String prefix = labels.isEmpty() ? "" : labels + ",";
+		long cumulative = 0;
+		for (int i = 0; i < bounds.length; i++) {
+			cumulative += buckets.get(i);
+			writer.write(name + "_bucket{" + prefix + "le=\"" + bounds[i] + "\"} " + cumulative + "\n");
+		}
+		cumulative += buckets.get(bounds.length);
+		writer.write(name + "_bucket{" + prefix + "le=\"+Inf\"} " + cumulative + "\n");
+		String suffix = labels.isEmpty() ? "" : "{" + labels + "}";
+		writer.write(name + "_sum" + suffix + " " + sumNanos.sum() / 1e9 + "\n");
+		writer.write(name + "_count" + suffix + " " + cumulative + "\n");
+	}
+}
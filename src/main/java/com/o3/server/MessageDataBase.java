@@ -2,23 +2,47 @@ package com.o3.server;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.apache.commons.codec.digest.Crypt;
-import org.json.JSONArray;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.security.SecureRandom;
 import java.sql.*;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 public class MessageDataBase {
 
 	private static volatile MessageDataBase instance;
-	private final HikariDataSource dataSource;
+	private static final int readPoolSize = Integer.getInteger("db.readPoolSize", 8);
+	// FULL syncs the WAL on every commit. NORMAL is faster but may lose the last commits on power loss or OS crash.
+	private static final String synchronous = System.getProperty("db.synchronous", "FULL");
+	private static final String cacheSize = System.getProperty("db.cacheSize", "-16000");	// Negative is KiB
+	private static final String mmapSize = System.getProperty("db.mmapSize", "268435456");	// 256 MiB
+	private static final String tempStore = System.getProperty("db.tempStore", "MEMORY");
+	private static final String busyTimeout = System.getProperty("db.busyTimeout", "5000");	// Milliseconds
+	private static final int writeBatchSize = Integer.getInteger("db.writeBatchSize", 64);
+	// Microseconds the writer waits for more writes. With 0 a batch holds the writes queued during the previous commit.
+	private static final long writeBatchDelay = Long.getLong("db.writeBatchDelay", 0);
+	private static final int searchCacheBytes = Integer.getInteger("search.cacheBytes", 32 * 1024 * 1024);	// 0 disables
+	private static final int searchCacheBlockSize = Integer.getInteger("search.cacheBlockSize", 4096);
+
+	private final HikariDataSource writeDataSource;	// Single writer connection
+	private final HikariDataSource readDataSource;	// Read-only connections
 	private final SecureRandom secureRandom;
+	private final WriteBatcher writeBatcher;
+	// Version of the observation data, bumped after every committed change visible in search results.
+	// The epoch keeps versions of different server runs apart.
+	private final String dataEpoch = Long.toString(System.currentTimeMillis(), 36);
+	private final AtomicLong dataVersion = new AtomicLong();
+	private final SearchResultCache searchCache;	// Null if disabled
 
 
 	/**
@@ -37,11 +61,63 @@ public class MessageDataBase {
 			}
 		}
 
-		// Set up config
+		// Writes go through one connection, so writers never contend for the SQLite write lock.
+		// In WAL mode readers do not block the writer and the writer does not block readers.
+		HikariConfig writeConfig = createConfig(dbName, 1);
+		writeConfig.setPoolName("sqlite-writer");
+		// Take the write lock when a transaction begins, so a transaction starting with a read
+		// does not fail with SQLITE_BUSY when it upgrades to a write.
+		writeConfig.addDataSourceProperty("transaction_mode", "IMMEDIATE");
+		writeDataSource = new HikariDataSource(writeConfig);
+
+		initializeDatabase();
+
+		HikariConfig readConfig = createConfig(dbName, readPoolSize);
+		readConfig.setPoolName("sqlite-reader");
+		readConfig.setReadOnly(true);
+		readConfig.addDataSourceProperty("open_mode", "1");	// SQLITE_OPEN_READONLY
+		readDataSource = new HikariDataSource(readConfig);
+
+		// All writes are committed in groups by a single writer
+		writeBatcher = new WriteBatcher(writeDataSource, writeBatchSize, writeBatchDelay);
+
+		searchCache = createSearchCache();
+	}
+
+
+	/**
+	 * Creates the search result cache from the search.cacheBytes and search.cacheBlockSize properties.
+	 * An invalid configuration disables the cache instead of preventing the server from starting.
+	 *
+	 * @return The search result cache, or null if the cache is disabled.
+	 */
+	private static SearchResultCache createSearchCache() {
+		if (searchCacheBytes <= 0) {
+			return null;
+		}
+		try {
+			return new SearchResultCache(searchCacheBytes, searchCacheBlockSize);
+		} catch (IllegalArgumentException iae) {
+			System.err.println("Search cache disabled: " + iae.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Creates a connection pool config with WAL mode and the tunable SQLite pragmas.
+	 * Synchronous defaults to FULL, so a write reported as successful survives a power loss. With
+	 * -Ddb.synchronous=NORMAL the WAL is synced only at checkpoints: the database stays consistent, but
+	 * transactions already acknowledged to clients may be rolled back after a power loss or OS crash.
+	 *
+	 * @param dbName   The name of the database file.
+	 * @param poolSize The maximum number of connections.
+	 * @return The connection pool config.
+	 */
+	private static HikariConfig createConfig(String dbName, int poolSize) {
 		HikariConfig config = new HikariConfig();
 		config.setJdbcUrl("jdbc:sqlite:" + dbName);
-		config.setMaximumPoolSize(10);
-		config.setMinimumIdle(5);
+		config.setMaximumPoolSize(poolSize);
+		config.setMinimumIdle(Math.min(poolSize, 5));
 		config.setIdleTimeout(300000);  // 5 minutes
 		config.setMaxLifetime(600000);  // 10 minutes
 
@@ -49,12 +125,15 @@ public class MessageDataBase {
 		config.addDataSourceProperty("prepStmtCacheSize", "250");
 		config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
 
-		dataSource = new HikariDataSource(config);
-
-		initializeDatabase();
+		config.addDataSourceProperty("journal_mode", "WAL");
+		config.addDataSourceProperty("synchronous", synchronous);
+		config.addDataSourceProperty("cache_size", cacheSize);
+		config.addDataSourceProperty("temp_store", tempStore);
+		config.addDataSourceProperty("busy_timeout", busyTimeout);
+		config.setConnectionInitSql("PRAGMA mmap_size = " + Long.parseLong(mmapSize));
+		return config;
 	}
 
-
 	/**
 	 * Returns the singleton instance of the MessageDataBase class.
 	 *
@@ -72,10 +151,11 @@ public class MessageDataBase {
 	}
 
 	/**
-	 * Initializes the database by executing SQL commands from an initialization file.
+	 * Initializes the database by executing SQL commands from an initialization file, then applies
+	 * pending schema migrations and checks the query plans of the supported searches.
 	 */
 	private void initializeDatabase() throws SQLException, IOException {
-		try (Connection conn = dataSource.getConnection();
+		try (Connection conn = writeDataSource.getConnection();
 			 Statement stmt = conn.createStatement();
 			 BufferedReader br = new BufferedReader(new FileReader("src/main/resources/initialize.sql"))) {
 
@@ -92,6 +172,10 @@ public class MessageDataBase {
 					stmt.execute(command.trim() + ";");
 				}
 			}
+
+			int version = SchemaMigrator.migrate(conn);
+			System.out.println("Database schema version: " + version);
+			SchemaMigrator.checkSearchPlans(conn);
 		}
 	}
 
@@ -116,14 +200,16 @@ public class MessageDataBase {
 	 */
 	public void insertUser(User newUser) throws SQLException {
 		String insertSQL = "INSERT INTO users (username, password, email, nickname) VALUES(?,?,?,?)";
-		try (Connection conn = dataSource.getConnection();
-			 PreparedStatement ps = conn.prepareStatement(insertSQL)) {
-			ps.setString(1, newUser.getUsername());
-			ps.setString(2, encrypt(newUser.getPassword()));
-			ps.setString(3, newUser.getEmail());
-			ps.setString(4, newUser.getNickname());
-			ps.executeUpdate();
-		}
+		String password = encrypt(newUser.getPassword());
+		writeBatcher.execute(conn -> {
+			try (PreparedStatement ps = conn.prepareStatement(insertSQL)) {
+				ps.setString(1, newUser.getUsername());
+				ps.setString(2, password);
+				ps.setString(3, newUser.getEmail());
+				ps.setString(4, newUser.getNickname());
+				return ps.executeUpdate();
+			}
+		});
 	}
 
 	/**
@@ -133,10 +219,22 @@ public class MessageDataBase {
 	 * @return The user ID.
 	 */
 	public int getUserId(String username) throws SQLException {
+		try (Connection conn = readDataSource.getConnection()) {
+			return getUserId(conn, username);
+		}
+	}
+
+	/**
+	 * Retrieves the user ID for a given username using an existing connection.
+	 *
+	 * @param conn     The database connection.
+	 * @param username The username to search for.
+	 * @return The user ID.
+	 */
+	private int getUserId(Connection conn, String username) throws SQLException {
 		String command = "SELECT id FROM users WHERE username = ? LIMIT 1";
 
-		try (Connection conn = dataSource.getConnection();
-			 PreparedStatement ps = conn.prepareStatement(command)) {
+		try (PreparedStatement ps = conn.prepareStatement(command)) {
 			ps.setString(1, username);
 			try (ResultSet result = ps.executeQuery()) {
 				if (result.next()) {
@@ -151,7 +249,7 @@ public class MessageDataBase {
 	public int getRecordOwnerId(int recordId) throws SQLException {
 		String command = "SELECT owner_id FROM records WHERE id = ? LIMIT 1";
 
-		try (Connection conn = dataSource.getConnection();
+		try (Connection conn = readDataSource.getConnection();
 			 PreparedStatement ps = conn.prepareStatement(command)) {
 			ps.setInt(1, recordId);
 			try (ResultSet result = ps.executeQuery()) {
@@ -178,6 +276,37 @@ public class MessageDataBase {
 	 */
 	public boolean updateRecord(int ownerId, int recordId, String newDesc, String newAsc, String newDec,
 								long updateTime, String updateReason) throws SQLException {
+		List<SearchResultCache.Change> changes = new ArrayList<>();
+		boolean updated = writeBatcher.execute(conn -> {
+			boolean result = updateRecord(conn, ownerId, recordId, newDesc, newAsc, newDec, updateTime, updateReason);
+			if (result) {
+				// The owner's description replaces a pending AI description
+				setEnrichmentStatus(conn, recordId, EnrichmentWorker.STATUS_CANCELLED, true, false);
+				addChange(conn, recordId, changes);
+			}
+			return result;
+		});
+		if (updated) {
+			publishChanges(changes);
+		}
+		return updated;
+	}
+
+	/**
+	 * Updates a record using the connection of the current transaction.
+	 *
+	 * @param conn         The database connection of the current transaction.
+	 * @param ownerId      The ID of the record owner.
+	 * @param recordId     The ID of the record to update.
+	 * @param newDesc      The new description (optional).
+	 * @param newAsc       The new right ascension (optional).
+	 * @param newDec       The new declination (optional).
+	 * @param updateTime   The timestamp of the update.
+	 * @param updateReason The reason for the update.
+	 * @return True if the update was successful, false otherwise.
+	 */
+	private boolean updateRecord(Connection conn, int ownerId, int recordId, String newDesc, String newAsc,
+								 String newDec, long updateTime, String updateReason) throws SQLException {
 
 		// Build update statement
 		StringBuilder query = new StringBuilder("UPDATE records SET ");
@@ -198,8 +327,7 @@ public class MessageDataBase {
 		query.append("modified = ?");
 		query.append(" WHERE owner_id = ? AND id = ?");
 
-		try (Connection conn = dataSource.getConnection();
-			 PreparedStatement ps = conn.prepareStatement(query.toString())) {
+		try (PreparedStatement ps = conn.prepareStatement(query.toString())) {
 			int i = 0;
 			for (; i < params.size(); i++) {
 				ps.setString(i + 1, params.get(i));
@@ -215,14 +343,14 @@ public class MessageDataBase {
 	/**
 	 * Inserts a new observatory into the database.
 	 *
+	 * @param conn        The database connection of the current transaction.
 	 * @param observatory The observatory object.
 	 * @param weatherId   The ID of the associated weather data (optional).
 	 * @return The generated ID of the inserted observatory.
 	 */
-	private int insertObservatory(Observatory observatory, Integer weatherId) throws SQLException {
+	private int insertObservatory(Connection conn, Observatory observatory, Integer weatherId) throws SQLException {
 		String insertSQL = "INSERT INTO observatories (name, latitude, longitude, weather_id) VAlUES (?,?,?,?)";
-		try (Connection conn = dataSource.getConnection();
-			 PreparedStatement ps = conn.prepareStatement(insertSQL)) {
+		try (PreparedStatement ps = conn.prepareStatement(insertSQL)) {
 			ps.setString(1, observatory.name());
 			ps.setString(2, observatory.latitude());
 			ps.setString(3, observatory.longitude());
@@ -245,14 +373,14 @@ public class MessageDataBase {
 	/**
 	 * Inserts weather data into the database.
 	 *
+	 * @param conn        The database connection of the current transaction.
 	 * @param weatherData The weather data object containing at least temperature, Others optional.
 	 * @return The generated ID of the inserted weather data.
 	 */
-	private int insertWeatherData(WeatherData weatherData) throws SQLException {
+	private int insertWeatherData(Connection conn, WeatherData weatherData) throws SQLException {
 		String insertSQL = "INSERT INTO weather " +
 			"(temperature, pressure, humidity, cloud_cover, light_volume) VAlUES (?,?,?,?,?)";
-		try(Connection conn = dataSource.getConnection();
-			PreparedStatement ps = conn.prepareStatement(insertSQL)) {
+		try (PreparedStatement ps = conn.prepareStatement(insertSQL)) {
 			ps.setString(1, weatherData.temperature());
 			setNullableString(ps, 2, weatherData.pressure());
 			setNullableString(ps, 3, weatherData.humidity());
@@ -288,20 +416,154 @@ public class MessageDataBase {
 	 * Inserts a new observation record into the database.
 	 *
 	 * @param record The observation record object containing all relevant details.
+	 * @return The generated ID of the inserted record.
+	 */
+	public int insertRecord(ObservationRecord record) throws SQLException {
+		return insertRecord(record, false);
+	}
+
+	/**
+	 * Inserts a new observation record with its weather data and observatory into the database.
+	 * The writes run in a single transaction, shared with other writes of the same write batch, and
+	 * the method returns once the transaction has been committed. A failure leaves no orphaned rows.
+	 *
+	 * @param record           The observation record object containing all relevant details.
+	 * @param queueDescription Adds a pending AI description job for the record in the same transaction.
+	 * @return The generated ID of the inserted record.
+	 */
+	public int insertRecord(ObservationRecord record, boolean queueDescription) throws SQLException {
+		List<SearchResultCache.Change> changes = new ArrayList<>();
+		int recordId = writeBatcher.execute(conn -> {
+			int id = insertRecord(conn, record);
+			if (queueDescription) {
+				insertEnrichmentJob(conn, id);
+			}
+			addChange(conn, id, changes);
+			return id;
+		});
+		publishChanges(changes);
+		return recordId;
+	}
+
+	/**
+	 * Inserts a batch of observation records in a single write. Each record is inserted inside its own savepoint,
+	 * so an invalid record is rolled back alone and the rest of the batch is still committed.
+	 *
+	 * @param records          The observation records to insert.
+	 * @param queueDescription Adds a pending AI description job for the record with the same index.
+	 * @return The generated IDs of the inserted records, or -1 for records that could not be inserted.
+	 */
+	public int[] insertRecords(List<ObservationRecord> records, boolean[] queueDescription) throws SQLException {
+		List<SearchResultCache.Change> changes = new ArrayList<>();
+		int[] inserted = writeBatcher.execute(conn -> {
+			int[] recordIds = new int[records.size()];
+			for (int i = 0; i < records.size(); i++) {
+				Savepoint savepoint = conn.setSavepoint();
+				try {
+					recordIds[i] = insertRecord(conn, records.get(i));
+					if (queueDescription[i]) {
+						insertEnrichmentJob(conn, recordIds[i]);
+					}
+					conn.releaseSavepoint(savepoint);
+					addChange(conn, recordIds[i], changes);
+				} catch (SQLException e) {
+					System.err.println("SQL error in bulk record insert: " + e.getMessage());
+					conn.rollback(savepoint);
+					conn.releaseSavepoint(savepoint);
+					recordIds[i] = -1;
+				}
+			}
+			return recordIds;
+		});
+		publishChanges(changes);
+		return inserted;
+	}
+
+	/**
+	 * Reads the searchable fields of a changed record for invalidating cached search results.
+	 * Does nothing if the search result cache is disabled.
+	 *
+	 * @param conn     The database connection of the current transaction.
+	 * @param recordId The ID of the changed record.
+	 * @param changes  The list receiving the change.
+	 */
+	private void addChange(Connection conn, int recordId, List<SearchResultCache.Change> changes) throws SQLException {
+		if (searchCache == null) {
+			return;
+		}
+		String selectSQL = "SELECT u.nickname, r.identifier, r.time_received " +
+			"FROM records r JOIN users u ON r.owner_id = u.id WHERE r.id = ?";
+		try (PreparedStatement ps = conn.prepareStatement(selectSQL)) {
+			ps.setInt(1, recordId);
+			try (ResultSet results = ps.executeQuery()) {
+				if (results.next()) {
+					changes.add(new SearchResultCache.Change(results.getString("nickname"),
+						results.getString("identifier"), results.getLong("time_received")));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Makes committed changes visible to readers. Cached search results affected by the changes are removed
+	 * before the data version changes, so a response tagged with the new version never comes from a stale page.
+	 *
+	 * @param changes The committed changes.
+	 */
+	private void publishChanges(List<SearchResultCache.Change> changes) {
+		if (searchCache != null) {
+			searchCache.invalidate(changes);
+		}
+		dataVersion.incrementAndGet();
+	}
+
+	/**
+	 * Returns the current version of the observation data. The version changes only after a change to records or
+	 * their description status has been committed, so a response read after getting the version is at least as new
+	 * as the version.
+	 *
+	 * @return The data version.
+	 */
+	public String getDataVersion() {
+		return dataEpoch + "." + dataVersion.get();
+	}
+
+	public SearchResultCache getSearchCache() {
+		return searchCache;
+	}
+
+	public WriteBatcher getWriteBatcher() {
+		return writeBatcher;
+	}
+
+	public HikariPoolMXBean getWritePool() {
+		return writeDataSource.getHikariPoolMXBean();
+	}
+
+	public HikariPoolMXBean getReadPool() {
+		return readDataSource.getHikariPoolMXBean();
+	}
+
+	/**
+	 * Inserts a new observation record using the connection of the current transaction.
+	 *
+	 * @param conn   The database connection of the current transaction.
+	 * @param record The observation record object containing all relevant details.
+	 * @return The generated ID of the inserted record.
 	 */
-	public void insertRecord(ObservationRecord record) throws SQLException {
-		int ownerId = getUserId(record.getOwner());
+	private int insertRecord(Connection conn, ObservationRecord record) throws SQLException {
+		int ownerId = getUserId(conn, record.getOwner());
 		Integer observatoryId = null;
 		Integer weatherId = null;
 
 		// Insert weather data if available and get its ID.
 		if (record.hasWeatherData()) {
-			weatherId = insertWeatherData(record.getWeatherData());
+			weatherId = insertWeatherData(conn, record.getWeatherData());
 		}
 
 		// Insert observatory data if available and get its ID.
 		if (record.hasObservatory()) {
-			observatoryId = insertObservatory(record.getObservatory(), weatherId);
+			observatoryId = insertObservatory(conn, record.getObservatory(), weatherId);
 		}
 
 		String insertSQL = "INSERT INTO records " +
@@ -317,8 +579,7 @@ public class MessageDataBase {
 			"observatory_id)" +
 			" VALUES(?,?,?,?,?,?,?,?,?,?)";
 
-		try (Connection conn = dataSource.getConnection();
-			 PreparedStatement ps = conn.prepareStatement(insertSQL)) {
+		try (PreparedStatement ps = conn.prepareStatement(insertSQL)) {
 			ps.setString(1, record.getIdentifier());
 			ps.setString(2, record.getDescription());
 			ps.setString(3, record.getPayload());
@@ -334,7 +595,178 @@ public class MessageDataBase {
 				ps.setNull(10, Types.INTEGER);
 			}
 			ps.executeUpdate();
+			try (ResultSet rs = ps.getGeneratedKeys()) {
+				if (rs.next()) {
+					return rs.getInt(1);
+				} else {
+					throw new SQLException("Error in getting record id!");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a pending AI description job for a record.
+	 *
+	 * @param conn     The database connection of the current transaction.
+	 * @param recordId The ID of the record waiting for a description.
+	 */
+	private void insertEnrichmentJob(Connection conn, int recordId) throws SQLException {
+		String insertSQL = "INSERT INTO enrichment_jobs (record_id, status, attempts, created) VALUES (?,?,0,?)";
+		try (PreparedStatement ps = conn.prepareStatement(insertSQL)) {
+			ps.setInt(1, recordId);
+			ps.setString(2, EnrichmentWorker.STATUS_PENDING);
+			ps.setLong(3, System.currentTimeMillis());
+			ps.executeUpdate();
+		}
+	}
+
+	/**
+	 * Retrieves the oldest pending AI description jobs that are due. Jobs waiting for a retry are skipped
+	 * until their next attempt time.
+	 *
+	 * @param limit The maximum number of jobs to return.
+	 * @return A list of due pending jobs, oldest first.
+	 */
+	public List<EnrichmentJob> getPendingEnrichmentJobs(int limit) throws SQLException {
+		String selectSQL = "SELECT e.record_id, e.attempts, r.payload " +
+			"FROM enrichment_jobs e JOIN records r ON e.record_id = r.id " +
+			"WHERE e.status = ? AND e.next_attempt <= ? ORDER BY e.created LIMIT ?";
+		List<EnrichmentJob> jobs = new ArrayList<>();
+		try (Connection conn = readDataSource.getConnection();
+			 PreparedStatement ps = conn.prepareStatement(selectSQL)) {
+			ps.setString(1, EnrichmentWorker.STATUS_PENDING);
+			ps.setLong(2, System.currentTimeMillis());
+			ps.setInt(3, limit);
+			try (ResultSet results = ps.executeQuery()) {
+				while (results.next()) {
+					jobs.add(new EnrichmentJob(
+						results.getInt("record_id"),
+						results.getString("payload"),
+						results.getInt("attempts")
+					));
+				}
+			}
 		}
+		return jobs;
+	}
+
+	/**
+	 * Counts a failed attempt of a pending AI description job and postpones the job until the next attempt.
+	 *
+	 * @param recordId    The ID of the record.
+	 * @param nextAttempt The earliest time of the next attempt in milliseconds since epoch.
+	 * @return True if the job was postponed, false if it is no longer pending.
+	 */
+	public boolean retryEnrichment(int recordId, long nextAttempt) throws SQLException {
+		String updateSQL = "UPDATE enrichment_jobs SET attempts = attempts + 1, next_attempt = ? " +
+			"WHERE record_id = ? AND status = ?";
+		return writeBatcher.execute(conn -> {
+			try (PreparedStatement ps = conn.prepareStatement(updateSQL)) {
+				ps.setLong(1, nextAttempt);
+				ps.setInt(2, recordId);
+				ps.setString(3, EnrichmentWorker.STATUS_PENDING);
+				return (ps.executeUpdate() > 0);
+			}
+		});
+	}
+
+	/**
+	 * Finishes a pending AI description job and writes the generated description in one transaction.
+	 * Nothing is written if the job is no longer pending, e.g. because the owner has written the description.
+	 * The update reason and modification time of the record are not changed.
+	 *
+	 * @param recordId    The ID of the record.
+	 * @param status      The final job status.
+	 * @param description The generated description.
+	 * @return True if the description was written, false otherwise.
+	 */
+	public boolean completeEnrichment(int recordId, String status, String description) throws SQLException {
+		String updateSQL = "UPDATE records SET description = ? WHERE id = ?";
+		List<SearchResultCache.Change> changes = new ArrayList<>();
+		boolean updated = writeBatcher.execute(conn -> {
+			if (!setEnrichmentStatus(conn, recordId, status, true, true)) {
+				return false;
+			}
+			try (PreparedStatement ps = conn.prepareStatement(updateSQL)) {
+				ps.setString(1, description);
+				ps.setInt(2, recordId);
+				ps.executeUpdate();
+			}
+			addChange(conn, recordId, changes);
+			return true;
+		});
+		if (updated) {
+			publishChanges(changes);
+		}
+		return updated;
+	}
+
+	/**
+	 * Sets the status of a record's AI description job using the connection of the current transaction.
+	 *
+	 * @param conn          The database connection of the current transaction.
+	 * @param recordId      The ID of the record.
+	 * @param status        The new job status.
+	 * @param onlyIfPending Only change the status if the job is still pending.
+	 * @param countAttempt  Increments the attempt counter of the job.
+	 * @return True if the status was changed, false otherwise.
+	 */
+	private boolean setEnrichmentStatus(Connection conn, int recordId, String status, boolean onlyIfPending,
+										boolean countAttempt) throws SQLException {
+		String updateSQL = "UPDATE enrichment_jobs SET status = ?" +
+			(countAttempt ? ", attempts = attempts + 1" : "") +
+			" WHERE record_id = ?" +
+			(onlyIfPending ? " AND status = '" + EnrichmentWorker.STATUS_PENDING + "'" : "");
+		try (PreparedStatement ps = conn.prepareStatement(updateSQL)) {
+			ps.setString(1, status);
+			ps.setInt(2, recordId);
+			return (ps.executeUpdate() > 0);
+		}
+	}
+
+	/**
+	 * Retrieves a cached AI summary.
+	 *
+	 * @param inputHash The hash of the summarized input.
+	 * @param model     The name of the model that generated the summary.
+	 * @return The cached summary entry, or null if not found.
+	 */
+	public SummaryCache.Entry getCachedSummary(String inputHash, String model) throws SQLException {
+		String selectSQL = "SELECT summary, generation_time FROM summary_cache WHERE input_hash = ? AND model = ? LIMIT 1";
+		try (Connection conn = readDataSource.getConnection();
+			 PreparedStatement ps = conn.prepareStatement(selectSQL)) {
+			ps.setString(1, inputHash);
+			ps.setString(2, model);
+			try (ResultSet results = ps.executeQuery()) {
+				if (results.next()) {
+					return new SummaryCache.Entry(results.getString("summary"), results.getLong("generation_time"));
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Inserts or replaces a cached AI summary.
+	 *
+	 * @param inputHash The hash of the summarized input.
+	 * @param model     The name of the model that generated the summary.
+	 * @param entry     The summary and its generation time.
+	 */
+	public void insertCachedSummary(String inputHash, String model, SummaryCache.Entry entry) throws SQLException {
+		String insertSQL = "INSERT OR REPLACE INTO summary_cache " +
+			"(input_hash, model, summary, generation_time, created) VALUES (?,?,?,?,?)";
+		writeBatcher.execute(conn -> {
+			try (PreparedStatement ps = conn.prepareStatement(insertSQL)) {
+				ps.setString(1, inputHash);
+				ps.setString(2, model);
+				ps.setString(3, entry.summary());
+				ps.setLong(4, entry.generationMillis());
+				ps.setLong(5, System.currentTimeMillis());
+				return ps.executeUpdate();
+			}
+		});
 	}
 
 	/**
@@ -344,55 +776,154 @@ public class MessageDataBase {
 	 * @return A JSON string representing the retrieved observations.
 	 */
 	public String getObservations(SearchQuery searchQuery) throws SQLException {
+		StringWriter writer = new StringWriter();
+		try {
+			writeObservations(searchQuery, writer);
+		} catch (IOException e) {
+			throw new SQLException("Error in writing observations!", e);
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * Writes the page of observations selected by a search query as a JSON array. Rows are written one at a time
+	 * as the result set is read, so memory use does not depend on the number of rows. The query selects one row
+	 * more than the page size, so the page and the cursor of the next page come from the same statement and
+	 * snapshot. Nothing is written if the query fails before the first row is read.
+	 *
+	 * @param searchQuery The search query object containing the SQL command and parameters.
+	 * @param writer      The writer receiving the JSON array.
+	 * @return The cursor of the next page, or null if this is the last page.
+	 */
+	public String writeObservations(SearchQuery searchQuery, Writer writer) throws SQLException, IOException {
 		String command = searchQuery.getCommand();
-		JSONArray jsonArray = new JSONArray();
+		String nextCursor = null;
 
-		try (Connection conn = dataSource.getConnection();
+		try (Connection conn = readDataSource.getConnection();
 			 PreparedStatement ps = conn.prepareStatement(command)) {
 			searchQuery.setParams(ps);
 			try (ResultSet results = ps.executeQuery()) {
-
+				writer.write('[');
+				int count = 0;
+				long sortKey = 0;
+				long id = 0;
 				while (results.next()) {
-					ObservationRecord obsRec;
-					Integer idx = results.getInt("id");
-					String id = results.getString("identifier");
-					String desc = results.getString("description");
-					String payload = results.getString("payload");
-					String asc = results.getString("right_ascension");
-					String dec = results.getString("declination");
-					String owner = results.getString("owner");
-					long time = results.getLong("time_received");
-					String updateStr = results.getString("update_reason");
-					long modified = results.getLong("modified");
-					Observatory obs = null;
-					WeatherData wData = null;
-
-					// Check if observatory data is available.
-					if (results.getString("name") != null) {
-						obs = new Observatory(
-							results.getString("name"),
-							results.getString("latitude"),
-							results.getString("longitude")
-						);
-						// Check if weather data is available.
-						if (results.getString("temperature") != null) {
-							wData = new WeatherData(
-								results.getString("temperature"),
-								results.getString("pressure"),
-								results.getString("humidity"),
-								results.getString("clouds"),
-								results.getString("light")
-							);
-						}
+					if (count == searchQuery.getLimit()) {
+						// The extra row shows the page is followed by another page
+						nextCursor = searchQuery.getNextCursor(sortKey, id);
+						break;
 					}
-					// Create an observation record and add it to the JSON array.
-					obsRec = new ObservationRecord(idx, id, desc, payload, asc,
-						dec, owner, time, obs, wData, updateStr, modified);
-					jsonArray.put(obsRec.getJSONObject());
+					if (count > 0) {
+						writer.write(',');
+					}
+					readRecord(results).getJSONObject().write(writer);
+					sortKey = searchQuery.getSortKey(results);
+					id = results.getLong("id");
+					count++;
+				}
+				writer.write(']');
+			}
+		}
+		writer.flush();
+		return nextCursor;
+	}
+
+	/**
+	 * Writes the page of observations selected by a search query as a JSON array, using the search result cache
+	 * when it is enabled. The cursor of the next page is passed to the cursor consumer before anything is written,
+	 * so the page is read into memory first. Its size is bounded by the maximum page size.
+	 *
+	 * @param searchQuery The search query object containing the SQL command and parameters.
+	 * @param writer      The writer receiving the JSON array.
+	 * @param nextCursor  Receives the cursor of the next page, or null if this is the last page.
+	 */
+	public void writePage(SearchQuery searchQuery, Writer writer, Consumer<String> nextCursor)
+		throws SQLException, IOException {
+		String key = searchQuery.getKey();
+		SearchResultCache.Page page = searchCache != null ? searchCache.get(key) : null;
+		if (page == null) {
+			// Taken before reading, so a page read before a concurrent change is not cached
+			long stamp = searchCache != null ? searchCache.getStamp() : 0;
+			StringWriter body = new StringWriter();
+			String cursor = writeObservations(searchQuery, body);
+			page = new SearchResultCache.Page(cursor, body.toString());
+			if (searchCache != null) {
+				searchCache.put(key, searchQuery, cursor, page.body(), stamp);
+			}
+		}
+		nextCursor.accept(page.nextCursor());
+		writer.write(page.body());
+		writer.flush();
+	}
+
+	/**
+	 * Creates an observation record from the current row of a search query result.
+	 *
+	 * @param results The result set positioned on a row.
+	 * @return The observation record.
+	 */
+	private ObservationRecord readRecord(ResultSet results) throws SQLException {
+		Integer idx = results.getInt("id");
+		String id = results.getString("identifier");
+		String desc = results.getString("description");
+		String payload = results.getString("payload");
+		String asc = results.getString("right_ascension");
+		String dec = results.getString("declination");
+		String owner = results.getString("owner");
+		long time = results.getLong("time_received");
+		String updateStr = results.getString("update_reason");
+		long modified = results.getLong("modified");
+		String descStatus = results.getString("description_status");
+		Observatory obs = null;
+		WeatherData wData = null;
+
+		// Check if observatory data is available.
+		if (results.getString("name") != null) {
+			obs = new Observatory(
+				results.getString("name"),
+				results.getString("latitude"),
+				results.getString("longitude")
+			);
+			// Check if weather data is available.
+			if (results.getString("temperature") != null) {
+				wData = new WeatherData(
+					results.getString("temperature"),
+					results.getString("pressure"),
+					results.getString("humidity"),
+					results.getString("clouds"),
+					results.getString("light")
+				);
+			}
+		}
+		return new ObservationRecord(idx, id, desc, payload, asc,
+			dec, owner, time, obs, wData, updateStr, modified, descStatus);
+	}
+
+	/**
+	 * Retrieves the distinct locations of observatories with observations received after the given time.
+	 *
+	 * @param since The time in milliseconds since epoch.
+	 * @return A list of recently active observatories, one per location.
+	 */
+	public List<Observatory> getActiveObservatories(long since) throws SQLException {
+		String selectSQL = "SELECT MIN(o.name) AS name, o.latitude, o.longitude FROM observatories o " +
+			"JOIN records r ON r.observatory_id = o.id " +
+			"WHERE r.time_received > ? GROUP BY o.latitude, o.longitude";
+		List<Observatory> observatories = new ArrayList<>();
+		try (Connection conn = readDataSource.getConnection();
+			 PreparedStatement ps = conn.prepareStatement(selectSQL)) {
+			ps.setLong(1, since);
+			try (ResultSet results = ps.executeQuery()) {
+				while (results.next()) {
+					observatories.add(new Observatory(
+						results.getString("name"),
+						results.getString("latitude"),
+						results.getString("longitude")
+					));
 				}
 			}
 		}
-		return jsonArray.toString();
+		return observatories;
 	}
 
 	/**
@@ -403,7 +934,7 @@ public class MessageDataBase {
 	 */
 	public boolean isUser(String username) throws SQLException {
 		String selectSQL = "SELECT 1 FROM users WHERE username = ? LIMIT 1";
-		try (Connection conn = dataSource.getConnection();
+		try (Connection conn = readDataSource.getConnection();
 			 PreparedStatement ps = conn.prepareStatement(selectSQL)) {
 			ps.setString(1, username);
 			try(ResultSet results = ps.executeQuery()) {
@@ -420,7 +951,7 @@ public class MessageDataBase {
 	 */
 	public boolean usedEmail(String email) throws SQLException {
 		String selectSQL = "SELECT 1 FROM users WHERE email = ? LIMIT 1";
-		try (Connection conn = dataSource.getConnection();
+		try (Connection conn = readDataSource.getConnection();
 			 PreparedStatement ps = conn.prepareStatement(selectSQL)) {
 			ps.setString(1, email);
 			try(ResultSet results = ps.executeQuery()) {
@@ -438,7 +969,7 @@ public class MessageDataBase {
 	 */
 	public boolean authenticateUser(String username, String password) throws SQLException {
 		String selectSQL = "SELECT password FROM users WHERE username = ? LIMIT 1";
-		try (Connection conn = dataSource.getConnection();
+		try (Connection conn = readDataSource.getConnection();
 			 PreparedStatement ps = conn.prepareStatement(selectSQL)) {
 			ps.setString(1, username);
 			try (ResultSet results = ps.executeQuery()) {
@@ -0,0 +1,199 @@
+package com.o3.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+
+import static com.o3.server.Util.sendResponse;
+
+public class MetricsHandler implements HttpHandler {
+
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private final MessageDataBase database;
+	private final WeatherService weatherService;
+	private final List<RequestMetricsFilter> requestMetrics;
+	private final List<AdmissionFilter> admissionFilters;
+
+	/**
+	 * Constructor to initialize the MetricsHandler. The filter lists are read on every scrape, so contexts
+	 * created after the handler are included.
+	 *
+	 * @param dbName           The name of the database file.
+	 * @param ws               The weather service instance.
+	 * @param requestMetrics   The request metrics of the contexts.
+	 * @param admissionFilters The admission filters of the contexts.
+	 */
+	public MetricsHandler(String dbName, WeatherService ws, List<RequestMetricsFilter> requestMetrics,
+						  List<AdmissionFilter> admissionFilters) throws SQLException, IOException {
+		this.database = MessageDataBase.getInstance(dbName);
+		this.weatherService = ws;
+		this.requestMetrics = requestMetrics;
+		this.admissionFilters = admissionFilters;
+	}
+
+	/**
+	 * Handles GET requests by writing all metrics in the Prometheus text format. The context requires basic
+	 * authentication, so a scraper must be configured with the credentials of a registered user.
+	 *
+	 * @param exchange The HTTP exchange object containing the request and response.
+	 */
+	@Override
+	public void handle(HttpExchange exchange) {
+		if (!exchange.getRequestMethod().equalsIgnoreCase("GET")) {
+			Util.notSupported(exchange);
+			return;
+		}
+		exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+		ChunkedResponseStream body = new ChunkedResponseStream(exchange, HttpURLConnection.HTTP_OK);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8));
+		try {
+			writeRequestMetrics(writer);
+			writeDatabaseMetrics(writer);
+			writeSearchCacheMetrics(writer);
+			writeWeatherMetrics(writer);
+			writeLLMMetrics(writer);
+			writeAdmissionMetrics(writer);
+			// The response is ended only after every metric has been written
+			writer.close();
+		} catch (IOException ioe) {
+			System.err.println("File error in writing metrics: " + ioe.getMessage());
+			if (body.abort()) {
+				sendResponse(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR,
+					Util.STATUS_MESSAGES.get(HttpURLConnection.HTTP_INTERNAL_ERROR).getBytes());
+			}
+		}
+	}
+
+	private void writeRequestMetrics(Writer writer) throws IOException {
+		writeHeader(writer, "o3_http_requests_total", "counter", "HTTP requests by path, method and status class.");
+		for (RequestMetricsFilter metrics : requestMetrics) {
+			metrics.writeRequests(writer, "o3_http_requests_total");
+		}
+		writeHeader(writer, "o3_http_request_duration_seconds", "histogram", "HTTP request latency.");
+		for (RequestMetricsFilter metrics : requestMetrics) {
+			metrics.writeLatencies(writer, "o3_http_request_duration_seconds");
+		}
+		writeHeader(writer, "o3_http_response_bytes_total", "counter", "HTTP response body bytes.");
+		for (RequestMetricsFilter metrics : requestMetrics) {
+			metrics.writeResponseBytes(writer, "o3_http_response_bytes_total");
+		}
+		writeHeader(writer, "o3_http_compressed_responses_total", "counter", "Responses sent compressed.");
+		writeValue(writer, "o3_http_compressed_responses_total", ChunkedResponseStream.getCompressedResponseCount());
+		writeHeader(writer, "o3_http_compression_input_bytes_total", "counter", "Body bytes of compressed responses before compression.");
+		writeValue(writer, "o3_http_compression_input_bytes_total", ChunkedResponseStream.getUncompressedBytes());
+		writeHeader(writer, "o3_http_compression_output_bytes_total", "counter", "Body bytes of compressed responses after compression.");
+		writeValue(writer, "o3_http_compression_output_bytes_total", ChunkedResponseStream.getCompressedBytes());
+		writeHeader(writer, "o3_http_compression_ratio", "gauge", "Compressed bytes per uncompressed byte since start.");
+		long input = ChunkedResponseStream.getUncompressedBytes();
+		writer.write("o3_http_compression_ratio " +
+			(input > 0 ? (double) ChunkedResponseStream.getCompressedBytes() / input : 0) + "\n");
+	}
+
+	private void writeDatabaseMetrics(Writer writer) throws IOException {
+		writeHeader(writer, "o3_db_pool_connections", "gauge", "Database pool connections by state.");
+		writePool(writer, "writer", database.getWritePool());
+		writePool(writer, "reader", database.getReadPool());
+		writeHeader(writer, "o3_db_pool_waiting_threads", "gauge", "Threads waiting for a database connection.");
+		writeValue(writer, "o3_db_pool_waiting_threads{pool=\"writer\"}", database.getWritePool().getThreadsAwaitingConnection());
+		writeValue(writer, "o3_db_pool_waiting_threads{pool=\"reader\"}", database.getReadPool().getThreadsAwaitingConnection());
+		writeHeader(writer, "o3_db_write_batches_total", "counter", "Committed write batches.");
+		writeValue(writer, "o3_db_write_batches_total", database.getWriteBatcher().getBatchCount());
+		writeHeader(writer, "o3_db_writes_total", "counter", "Committed writes.");
+		writeValue(writer, "o3_db_writes_total", database.getWriteBatcher().getWriteCount());
+	}
+
+	private void writeSearchCacheMetrics(Writer writer) throws IOException {
+		SearchResultCache cache = database.getSearchCache();
+		if (cache == null) {
+			return;
+		}
+		writeHeader(writer, "o3_search_cache_entries", "gauge", "Cached search result pages.");
+		writeValue(writer, "o3_search_cache_entries", cache.getEntryCount());
+		writeHeader(writer, "o3_search_cache_bytes", "gauge", "Off-heap bytes of the search result cache by state.");
+		writeValue(writer, "o3_search_cache_bytes{state=\"used\"}", cache.getUsedBytes());
+		writeValue(writer, "o3_search_cache_bytes{state=\"capacity\"}", cache.getCapacityBytes());
+		writeHeader(writer, "o3_search_cache_hits_total", "counter", "Search pages served from the cache.");
+		writeValue(writer, "o3_search_cache_hits_total", cache.getHits());
+		writeHeader(writer, "o3_search_cache_misses_total", "counter", "Search pages read from the database.");
+		writeValue(writer, "o3_search_cache_misses_total", cache.getMisses());
+		writeHeader(writer, "o3_search_cache_invalidations_total", "counter", "Cached pages removed by writes.");
+		writeValue(writer, "o3_search_cache_invalidations_total", cache.getInvalidations());
+		writeHeader(writer, "o3_search_cache_evictions_total", "counter", "Cached pages evicted for space.");
+		writeValue(writer, "o3_search_cache_evictions_total", cache.getEvictions());
+	}
+
+	private void writePool(Writer writer, String pool, HikariPoolMXBean bean) throws IOException {
+		writeValue(writer, "o3_db_pool_connections{pool=\"" + pool + "\",state=\"active\"}", bean.getActiveConnections());
+		writeValue(writer, "o3_db_pool_connections{pool=\"" + pool + "\",state=\"idle\"}", bean.getIdleConnections());
+	}
+
+	private void writeWeatherMetrics(Writer writer) throws IOException {
+		writeHeader(writer, "o3_weather_request_duration_seconds", "histogram", "Weather service call latency.");
+		weatherService.getFetchLatency().write(writer, "o3_weather_request_duration_seconds", "");
+		writeHeader(writer, "o3_weather_errors_total", "counter", "Failed weather service calls.");
+		writeValue(writer, "o3_weather_errors_total", weatherService.getFetchErrorCount());
+		writeHeader(writer, "o3_weather_cache_hits_total", "counter", "Weather cache hits.");
+		writeValue(writer, "o3_weather_cache_hits_total", weatherService.getCache().getHits());
+		writeHeader(writer, "o3_weather_cache_misses_total", "counter", "Weather cache misses.");
+		writeValue(writer, "o3_weather_cache_misses_total", weatherService.getCache().getMisses());
+		writeHeader(writer, "o3_weather_coalesced_total", "counter", "Weather requests served by a concurrent fetch.");
+		writeValue(writer, "o3_weather_coalesced_total", weatherService.getCoalescedCount());
+	}
+
+	private void writeLLMMetrics(Writer writer) throws IOException {
+		writeHeader(writer, "o3_llm_generation_duration_seconds", "histogram", "LLM summary generation time.");
+		LLMService.getGenerationLatency().write(writer, "o3_llm_generation_duration_seconds", "");
+		writeHeader(writer, "o3_llm_queue_depth", "gauge", "Requests waiting for a free LLM model.");
+		writeValue(writer, "o3_llm_queue_depth", LLMService.getQueueDepth());
+		writeHeader(writer, "o3_llm_timeouts_total", "counter", "Requests that timed out waiting for a model.");
+		writeValue(writer, "o3_llm_timeouts_total", LLMService.getTimeoutCount());
+		SummaryCache cache = LLMService.getSummaryCache();
+		if (cache != null) {
+			writeHeader(writer, "o3_llm_summary_cache_hits_total", "counter", "Summaries served from the cache.");
+			writeValue(writer, "o3_llm_summary_cache_hits_total", cache.getHits());
+			writeHeader(writer, "o3_llm_summary_cache_misses_total", "counter", "Summaries missing from the cache.");
+			writeValue(writer, "o3_llm_summary_cache_misses_total", cache.getMisses());
+		}
+	}
+
+	private void writeAdmissionMetrics(Writer writer) throws IOException {
+		if (admissionFilters.isEmpty()) {
+			return;
+		}
+		writeHeader(writer, "o3_admission_limit", "gauge", "Concurrency limit of the context.");
+		for (AdmissionFilter filter : admissionFilters) {
+			writeValue(writer, "o3_admission_limit{context=\"" + filter.getName() + "\"}", filter.getLimit());
+		}
+		writeHeader(writer, "o3_admission_in_flight", "gauge", "Requests running in the context.");
+		for (AdmissionFilter filter : admissionFilters) {
+			writeValue(writer, "o3_admission_in_flight{context=\"" + filter.getName() + "\"}", filter.getInFlight());
+		}
+		writeHeader(writer, "o3_admission_queued", "gauge", "Requests waiting for a slot.");
+		for (AdmissionFilter filter : admissionFilters) {
+			writeValue(writer, "o3_admission_queued{context=\"" + filter.getName() + "\"}", filter.getQueued());
+		}
+		writeHeader(writer, "o3_admission_rejected_total", "counter", "Requests rejected with 503.");
+		for (AdmissionFilter filter : admissionFilters) {
+			writeValue(writer, "o3_admission_rejected_total{context=\"" + filter.getName() + "\"}",
+				filter.getRejectedCount());
+		}
+	}
+
+	private static void writeHeader(Writer writer, String name, String type, String help) throws IOException {
+		writer.write("# HELP " + name + " " + help + "\n");
+		writer.write("# TYPE " + name + " " + type + "\n");
+	}
+
+	private static void writeValue(Writer writer, String series, long value) throws IOException {
+		writer.write(series + " " + value + "\n");
+	}
+}
@@ -1,14 +1,20 @@
 package com.o3.server;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.ConnectException;
 import java.net.HttpURLConnection;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.AccessDeniedException;
 import java.security.Principal;
 import java.sql.SQLException;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
@@ -20,18 +26,24 @@ import static com.o3.server.Util.sendResponse;
 
 public class ObservationHandler implements HttpHandler {
 
+	private static final Set<String> PAGE_ARGS = Set.of("limit", "cursor");
+
 	private final MessageDataBase database;
 	private final WeatherService weatherService;
+	private final EnrichmentWorker enrichmentWorker;
 
 	/**
 	 * Constructor to initialize the ObservationHandler with a database and weather service.
 	 *
 	 * @param dbName        The name of the database file.
 	 * @param ws            The weather service instance for fetching weather data.
+	 * @param worker        The background AI description worker, or null to summarize during the request.
 	 */
-	public ObservationHandler(String dbName, WeatherService ws) throws SQLException, IOException {
+	public ObservationHandler(String dbName, WeatherService ws, EnrichmentWorker worker)
+		throws SQLException, IOException {
 		database = MessageDataBase.getInstance(dbName);
 		weatherService = ws;
+		enrichmentWorker = worker;
 	}
 
 
@@ -67,6 +79,9 @@ public class ObservationHandler implements HttpHandler {
 			System.err.println("Authentication error in observation handler: " + ade.getMessage());
 			sendResponse(exchange, HttpURLConnection.HTTP_UNAUTHORIZED,
 				Util.STATUS_MESSAGES.get(HttpURLConnection.HTTP_UNAUTHORIZED).getBytes());
+		} catch (UncheckedIOException uioe) {
+			// An aborted response, the server closes the connection
+			throw uioe;
 		} catch (Exception e) {
 			System.err.println("Unhandled server error in observation handler: " + e.getMessage());
 			sendResponse(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR);
@@ -104,7 +119,7 @@ public class ObservationHandler implements HttpHandler {
 				return;
 			}
 
-			// Update record
+			// Update record, a pending AI description job is cancelled in the same transaction
 			boolean updated = database.updateRecord(ownerId, recordId, newDesc, newAsc, newDec, updateTime, updateReason);
 			if (!updated) {
 				int code = HttpURLConnection.HTTP_INTERNAL_ERROR;
@@ -139,16 +154,52 @@ public class ObservationHandler implements HttpHandler {
 	 */
 	private void getHandler(HttpExchange exchange) throws AccessDeniedException {
 		String username = getUsername(exchange);
+		SearchQuery searchQuery;
+		try {
+			// Default search query, optionally paged
+			Map<String, String> pageArgs = Util.parseQueryArgs(exchange.getRequestURI().getQuery(), PAGE_ARGS);
+			searchQuery = new SearchQuery(pageArgs);
+		} catch (IllegalArgumentException iae) {
+			System.err.println("Argument error in getting observation records: " + iae.getMessage());
+			sendResponse(exchange, HttpURLConnection.HTTP_BAD_REQUEST,
+				Util.STATUS_MESSAGES.get(HttpURLConnection.HTTP_BAD_REQUEST).getBytes());
+			return;
+		}
+
+		// Answer polls of unchanged data without running the query
+		String encoding = ChunkedResponseStream.negotiateEncoding(exchange);
+		String etag = searchQuery.getETag(database.getDataVersion(), encoding);
+		if (Util.isNotModified(exchange, etag)) {
+			Util.setETag(exchange, etag);
+			sendResponse(exchange, HttpURLConnection.HTTP_NOT_MODIFIED);
+			return;
+		}
+
+		ChunkedResponseStream responseStream = new ChunkedResponseStream(exchange, HttpURLConnection.HTTP_OK, encoding);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(responseStream, StandardCharsets.UTF_8));
 		try {
-			SearchQuery searchQuery = new SearchQuery(null);	// Default search query
-			String responseString = database.getObservations(searchQuery);
-			sendResponse(exchange, HttpURLConnection.HTTP_OK,
-				responseString.getBytes(StandardCharsets.UTF_8));
+			database.writePage(searchQuery, writer, nextCursor -> {
+				// Called once the page has been read, so a failed query gets no validator
+				Util.setETag(exchange, etag);
+				if (nextCursor != null) {
+					exchange.getResponseHeaders().set(Util.NEXT_CURSOR_HEADER, nextCursor);
+				}
+			});
+			// The response is ended only after the whole page has been written
+			writer.close();
 		} catch (SQLException e) {
 			System.err.println("SQL error in getting observation records for user: " + username + "\n"
 				+ e.getMessage());
-			sendResponse(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR,
-				Util.STATUS_MESSAGES.get(HttpURLConnection.HTTP_INTERNAL_ERROR).getBytes());
+			if (responseStream.abort()) {
+				sendResponse(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR,
+					Util.STATUS_MESSAGES.get(HttpURLConnection.HTTP_INTERNAL_ERROR).getBytes());
+			}
+		} catch (IOException ioe) {
+			System.err.println("File error in writing observation records: " + ioe.getMessage());
+			if (responseStream.abort()) {
+				sendResponse(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR,
+					Util.STATUS_MESSAGES.get(HttpURLConnection.HTTP_INTERNAL_ERROR).getBytes());
+			}
 		}
 	}
 
@@ -170,9 +221,13 @@ public class ObservationHandler implements HttpHandler {
 			}
 
 			JSONObject jsonObject = new JSONObject(text);
-			ObservationRecord record = parseMessage(jsonObject, username);
+			boolean deferDescription = enrichmentWorker != null && jsonObject.optString("recordDescription").isEmpty();
+			ObservationRecord record = parseMessage(jsonObject, username, deferDescription);
 
-			database.insertRecord(record);
+			database.insertRecord(record, deferDescription);
+			if (deferDescription) {
+				enrichmentWorker.wakeUp();
+			}
 			sendResponse(exchange, HttpURLConnection.HTTP_OK);
 
 		} catch (JSONException je) {
@@ -249,11 +304,12 @@ public class ObservationHandler implements HttpHandler {
 	 *
 	 * @param message The JSON object containing the observation data.
 	 * @param owner   The username of the record owner.
+	 * @param deferDescription Stores a pending description instead of summarizing an empty description now.
 	 * @return The parsed ObservationRecord.
 	 * @throws JSONException           If the JSON format is invalid.
 	 * @throws IllegalArgumentException If required fields are missing or invalid.
 	 */
-	private ObservationRecord parseMessage(JSONObject message, String owner)
+	ObservationRecord parseMessage(JSONObject message, String owner, boolean deferDescription)
 		throws JSONException, IllegalArgumentException {
 
 		// Extract required fields from the JSON object.
@@ -265,7 +321,11 @@ public class ObservationHandler implements HttpHandler {
 
 		// Add AI created description if description is empty
 		if (description.isEmpty()) {
-			description = LLMService.summarize(payload);
+			if (deferDescription) {
+				description = EnrichmentWorker.PENDING_DESCRIPTION;
+			} else {
+				description = LLMService.summarize(payload);
+			}
 		}
 
 		// Extract optional fields from the JSON object.
@@ -21,6 +21,7 @@ public class ObservationRecord {
 	private final WeatherData weatherData;
 	private final String updateReason;
 	private final ZonedDateTime updateTime;
+	private final String descriptionStatus;
 
 	/**
 	 * Constructor for creating an observation record with current time as time stamp. Uses ISO 8601 date format.
@@ -42,6 +43,7 @@ public class ObservationRecord {
 		this.weatherData = wData;
 		this.updateReason = Objects.requireNonNullElse(updateReason, "N/A");
 		this.updateTime = currentTime;
+		this.descriptionStatus = null;
 	}
 
 	/**
@@ -50,7 +52,7 @@ public class ObservationRecord {
 	public ObservationRecord(Integer index, String identifier, String description, String payload,
 							 String rightAscension, String declination, String owner,
 							 long timeReceived, Observatory observatory, WeatherData wData,
-							 String updateReason, long updateTime) {
+							 String updateReason, long updateTime, String descriptionStatus) {
 		this.index = index;
 		this.identifier = identifier;
 		this.description = description;
@@ -63,6 +65,7 @@ public class ObservationRecord {
 		this.weatherData = wData;
 		this.updateReason = updateReason;
 		this.updateTime = Util.timeLongToZoned(updateTime);
+		this.descriptionStatus = descriptionStatus;
 	}
 
 	public JSONObject getJSONObject() {
@@ -80,6 +83,9 @@ public class ObservationRecord {
 				.put("updateReason", updateReason)
 				.put("modified", updateTime.format(formatter));
 		}
+		if (descriptionStatus != null) {
+			jsonObject.put("descriptionStatus", descriptionStatus);
+		}
 		if (this.hasObservatory()) {
 			JSONArray tmp = new JSONArray();
 			tmp.put(observatory.getJSONObject());
@@ -0,0 +1,130 @@
+package com.o3.server;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class RequestMetricsFilter extends Filter {
+
+	private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "OTHER"};
+	private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+
+	private final String path;
+	private final LatencyHistogram[] latencies = new LatencyHistogram[METHODS.length];
+	private final AtomicLongArray statusCounts = new AtomicLongArray(METHODS.length * STATUS_CLASSES.length);
+	private final LongAdder[] responseBytes = new LongAdder[METHODS.length];
+
+	/**
+	 * Constructs a filter recording request counts, latencies and response sizes of a context by method.
+	 * All series are created up front, so recording a request only updates counters.
+	 *
+	 * @param path The path of the context.
+	 */
+	public RequestMetricsFilter(String path) {
+		this.path = path;
+		for (int i = 0; i < METHODS.length; i++) {
+			latencies[i] = new LatencyHistogram();
+			responseBytes[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Counts the response bytes written by the handler.
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+		private long count;
+
+		private CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+
+	@Override
+	public String description() {
+		return "Request metrics for " + path;
+	}
+
+	@Override
+	public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+		int method = methodIndex(exchange.getRequestMethod());
+		CountingOutputStream body = new CountingOutputStream(exchange.getResponseBody());
+		exchange.setStreams(null, body);
+		long start = System.nanoTime();
+		try {
+			chain.doFilter(exchange);
+		} finally {
+			latencies[method].record(System.nanoTime() - start);
+			responseBytes[method].add(body.count);
+			int status = exchange.getResponseCode() / 100;
+			if (status >= 1 && status <= STATUS_CLASSES.length) {
+				statusCounts.incrementAndGet(method * STATUS_CLASSES.length + status - 1);
+			}
+		}
+	}
+
+	/**
+	 * Writes the request count series of the context in the Prometheus text format.
+	 */
+	public void writeRequests(Writer writer, String name) throws IOException {
+		for (int m = 0; m < METHODS.length; m++) {
+			for (int s = 0; s < STATUS_CLASSES.length; s++) {
+				long count = statusCounts.get(m * STATUS_CLASSES.length + s);
+				if (count > 0) {
+					writer.write(name + "{" + labels(m) + ",code=\"" + STATUS_CLASSES[s] + "\"} " + count + "\n");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the latency histograms of the context in the Prometheus text format.
+	 */
+	public void writeLatencies(Writer writer, String name) throws IOException {
+		for (int m = 0; m < METHODS.length; m++) {
+			if (latencies[m].getCount() > 0) {
+				latencies[m].write(writer, name, labels(m));
+			}
+		}
+	}
+
+	/**
+	 * Writes the response byte counts of the context in the Prometheus text format.
+	 */
+	public void writeResponseBytes(Writer writer, String name) throws IOException {
+		for (int m = 0; m < METHODS.length; m++) {
+			if (latencies[m].getCount() > 0) {
+				writer.write(name + "{" + labels(m) + "} " + responseBytes[m].sum() + "\n");
+			}
+		}
+	}
+
+	private String labels(int method) {
+		return "path=\"" + path + "\",method=\"" + METHODS[method] + "\"";
+	}
+
+	private static int methodIndex(String method) {
+		for (int i = 0; i < METHODS.length - 1; i++) {
+			if (METHODS[i].equalsIgnoreCase(method)) {
+				return i;
+			}
+		}
+		return METHODS.length - 1;
+	}
+}
@@ -0,0 +1,242 @@
+package com.o3.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class SchemaMigrator {
+
+	private static final String MIGRATIONS_PATH = "/migrations/";
+	private static final String MIGRATIONS_LIST = MIGRATIONS_PATH + "migrations.list";
+	private static final String TEST_TIME = "2025-01-01T00:00:00.000Z";
+
+	// Supported search shapes checked against the query plan at startup.
+	private static final List<Map<String, String>> SEARCH_SHAPES = List.of(
+		Map.of(),
+		Map.of("nickname", "test"),
+		Map.of("identification", "test"),
+		Map.of("after", TEST_TIME),
+		Map.of("before", TEST_TIME),
+		Map.of("after", TEST_TIME, "before", TEST_TIME),
+		Map.of("nickname", "test", "identification", "test"),
+		Map.of("nickname", "test", "after", TEST_TIME),
+		Map.of("identification", "test", "after", TEST_TIME, "before", TEST_TIME),
+		Map.of("cursor", SearchQuery.encodeCursor(0, 0)),
+		Map.of("text", "test"),
+		Map.of("text", "test", "nickname", "test", "after", TEST_TIME),
+		Map.of("text", "test", "cursor", SearchQuery.encodeRankCursor(-1.0, 0)),
+		Map.of("latitude", "65.0", "longitude", "25.5", "radius", "10"),
+		Map.of("bbox", "60,20,70,30"),
+		Map.of("bbox", "60,170,70,-170", "nickname", "test")
+	);
+
+	private SchemaMigrator() {
+	}
+
+	/**
+	 * Applies migration scripts newer than the current schema version. Each script is applied in its own
+	 * transaction together with its schema_version row.
+	 *
+	 * @param conn The database connection.
+	 * @return The schema version after migrating.
+	 */
+	public static int migrate(Connection conn) throws SQLException, IOException {
+		try (Statement stmt = conn.createStatement()) {
+			stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+				"version INTEGER PRIMARY KEY, name TEXT NOT NULL, applied INTEGER NOT NULL)");
+		}
+		int current = getVersion(conn);
+
+		for (String script : readLines(MIGRATIONS_LIST)) {
+			int version = parseVersion(script);
+			if (version <= current) {
+				continue;
+			}
+			boolean autoCommit = conn.getAutoCommit();
+			conn.setAutoCommit(false);
+			try (Statement stmt = conn.createStatement();
+				 PreparedStatement ps = conn.prepareStatement(
+					 "INSERT INTO schema_version (version, name, applied) VALUES (?,?,?)")) {
+				for (String command : splitStatements(String.join("\n", readLines(MIGRATIONS_PATH + script)))) {
+					stmt.execute(command);
+				}
+				ps.setInt(1, version);
+				ps.setString(2, script);
+				ps.setLong(3, System.currentTimeMillis());
+				ps.executeUpdate();
+				conn.commit();
+				current = version;
+				System.out.println("Applied database migration: " + script);
+			} catch (SQLException e) {
+				conn.rollback();
+				throw new SQLException("Database migration " + script + " failed: " + e.getMessage(), e);
+			} finally {
+				conn.setAutoCommit(autoCommit);
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Checks the query plan of every supported search shape and warns about full scans of the records table.
+	 *
+	 * @param conn The database connection.
+	 * @return The number of search shapes scanning the whole records table.
+	 */
+	public static int checkSearchPlans(Connection conn) throws SQLException {
+		int warnings = 0;
+		for (Map<String, String> shape : SEARCH_SHAPES) {
+			SearchQuery searchQuery = new SearchQuery(shape);
+			try (PreparedStatement ps = conn.prepareStatement("EXPLAIN QUERY PLAN " + searchQuery.getCommand())) {
+				searchQuery.setParams(ps);
+				try (ResultSet results = ps.executeQuery()) {
+					while (results.next()) {
+						String detail = results.getString("detail");
+						if (detail.startsWith("SCAN r") && !detail.contains("INDEX")) {
+							System.err.println("[WARNING] Search " + shape.keySet() + " scans the whole records table: "
+								+ detail);
+							warnings++;
+						}
+					}
+				}
+			}
+		}
+		return warnings;
+	}
+
+	/**
+	 * Splits an SQL script into statements at semicolons. Semicolons inside string literals, quoted identifiers and
+	 * the BEGIN ... END body of a CREATE TRIGGER statement do not end a statement.
+	 *
+	 * @param script The SQL script.
+	 * @return The statements of the script.
+	 */
+	static List<String> splitStatements(String script) {
+		List<String> statements = new ArrayList<>();
+		StringBuilder statement = new StringBuilder();
+		List<String> words = new ArrayList<>();	// Leading words of the statement, enough to recognize a trigger
+		int depth = 0;	// Open BEGIN and CASE blocks of a trigger body
+		int i = 0;
+		while (i < script.length()) {
+			char c = script.charAt(i);
+			if (c == '\'' || c == '"' || c == '`') {
+				// Copy the quoted text, a doubled quote is an escaped quote
+				int end = i + 1;
+				while (end < script.length()) {
+					if (script.charAt(end) == c) {
+						if (end + 1 < script.length() && script.charAt(end + 1) == c) {
+							end += 2;
+							continue;
+						}
+						break;
+					}
+					end++;
+				}
+				end = Math.min(end + 1, script.length());
+				statement.append(script, i, end);
+				i = end;
+			} else if (Character.isLetter(c) || c == '_') {
+				int end = i;
+				while (end < script.length()
+					&& (Character.isLetterOrDigit(script.charAt(end)) || script.charAt(end) == '_')) {
+					end++;
+				}
+				String word = script.substring(i, end).toUpperCase();
+				if (words.size() < 3) {
+					words.add(word);
+				}
+				if (isTrigger(words)) {
+					if (word.equals("BEGIN") || word.equals("CASE")) {
+						depth++;
+					} else if (word.equals("END")) {
+						depth--;
+					}
+				}
+				statement.append(script, i, end);
+				i = end;
+			} else if (c == ';' && depth <= 0) {
+				if (!statement.toString().trim().isEmpty()) {
+					statements.add(statement.toString().trim() + ";");
+				}
+				statement.setLength(0);
+				words.clear();
+				depth = 0;
+				i++;
+			} else {
+				statement.append(c);
+				i++;
+			}
+		}
+		if (!statement.toString().trim().isEmpty()) {
+			statements.add(statement.toString().trim() + ";");
+		}
+		return statements;
+	}
+
+	/**
+	 * Checks if the leading words of a statement start a CREATE TRIGGER or CREATE TEMP TRIGGER statement.
+	 */
+	private static boolean isTrigger(List<String> words) {
+		if (words.size() < 2 || !words.get(0).equals("CREATE")) {
+			return false;
+		}
+		return words.get(1).equals("TRIGGER") || (words.size() == 3 && words.get(2).equals("TRIGGER")
+			&& (words.get(1).equals("TEMP") || words.get(1).equals("TEMPORARY")));
+	}
+
+	private static int getVersion(Connection conn) throws SQLException {
+		try (Statement stmt = conn.createStatement();
+			 ResultSet results = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+			return results.next() ? results.getInt(1) : 0;
+		}
+	}
+
+	/**
+	 * Parses the schema version from the number prefix of a migration script name.
+	 *
+	 * @param script The migration script name, e.g. "001_search_indexes.sql".
+	 * @return The schema version.
+	 */
+	private static int parseVersion(String script) throws IOException {
+		int end = script.indexOf('_');
+		try {
+			return Integer.parseInt(script.substring(0, end));
+		} catch (RuntimeException e) {
+			throw new IOException("Invalid migration script name: " + script);
+		}
+	}
+
+	/**
+	 * Reads a classpath resource, skipping empty lines, "#" and "--" comment lines.
+	 *
+	 * @param resource The resource path.
+	 * @return The lines of the resource.
+	 */
+	private static List<String> readLines(String resource) throws IOException {
+		InputStream input = SchemaMigrator.class.getResourceAsStream(resource);
+		if (input == null) {
+			throw new IOException("Missing resource: " + resource);
+		}
+		List<String> lines = new ArrayList<>();
+		try (BufferedReader br = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = br.readLine()) != null) {
+				String trimmed = line.trim();
+				if (!trimmed.isEmpty() && !trimmed.startsWith("#") && !trimmed.startsWith("--")) {
+					lines.add(line);
+				}
+			}
+		}
+		return lines;
+	}
+}
@@ -2,19 +2,27 @@ package com.o3.server;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.AccessDeniedException;
 import java.security.Principal;
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import static com.o3.server.Util.sendResponse;
 
 public class SearchHandler implements HttpHandler {
 
+	private static final Set<String> SEARCH_ARGS = Set.of(
+		"identification", "nickname", "after", "before", "text", "latitude", "longitude", "radius", "bbox",
+		"limit", "cursor");
+
 	private final MessageDataBase database;
 
 	/**
@@ -53,6 +61,9 @@ public class SearchHandler implements HttpHandler {
 			System.err.println("Argument Error: " + iae.getMessage());
 			sendResponse(exchange, HttpURLConnection.HTTP_BAD_REQUEST,
 				Util.STATUS_MESSAGES.get(HttpURLConnection.HTTP_BAD_REQUEST).getBytes());
+		} catch (UncheckedIOException uioe) {
+			// An aborted response, the server closes the connection
+			throw uioe;
 		} catch (Exception e) {
 			System.err.println("Unhandled server error in search: " + e.getMessage());
 			sendResponse(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR);
@@ -68,26 +79,50 @@ public class SearchHandler implements HttpHandler {
 	 */
 	private void getHandler(HttpExchange exchange) throws IllegalArgumentException, AccessDeniedException {
 		String username = getUsername(exchange);
-		try {
-			String query = exchange.getRequestURI().getQuery();
-			if (query == null || query.isEmpty()) {
-				throw new IllegalArgumentException("Search query cannot be empty!");
-			}
+		String query = exchange.getRequestURI().getQuery();
+		if (query == null || query.isEmpty()) {
+			throw new IllegalArgumentException("Search query cannot be empty!");
+		}
 
-			// Parse the query string into search arguments.
-			Map<String, String> searchArgs = getSearchArgs(query);
-			SearchQuery searchQuery = new SearchQuery(searchArgs);
+		// Parse the query string into search arguments.
+		Map<String, String> searchArgs = getSearchArgs(query);
+		SearchQuery searchQuery = new SearchQuery(searchArgs);
 
-			// Get searched observations
-			String responseString = database.getObservations(searchQuery);
-			sendResponse(exchange, HttpURLConnection.HTTP_OK,
-				responseString.getBytes(StandardCharsets.UTF_8));
+		// Answer polls of unchanged data without running the query
+		String encoding = ChunkedResponseStream.negotiateEncoding(exchange);
+		String etag = searchQuery.getETag(database.getDataVersion(), encoding);
+		if (Util.isNotModified(exchange, etag)) {
+			Util.setETag(exchange, etag);
+			sendResponse(exchange, HttpURLConnection.HTTP_NOT_MODIFIED);
+			return;
+		}
 
+		// Stream searched observations, the cursor of the next page is sent as a header
+		ChunkedResponseStream responseStream = new ChunkedResponseStream(exchange, HttpURLConnection.HTTP_OK, encoding);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(responseStream, StandardCharsets.UTF_8));
+		try {
+			database.writePage(searchQuery, writer, nextCursor -> {
+				// Called once the page has been read, so a failed query gets no validator
+				Util.setETag(exchange, etag);
+				if (nextCursor != null) {
+					exchange.getResponseHeaders().set(Util.NEXT_CURSOR_HEADER, nextCursor);
+				}
+			});
+			// The response is ended only after the whole page has been written
+			writer.close();
 		} catch (SQLException e) {
 			System.err.println("SQL error in getting searched records for user: " + username + "\n"
 				+ e.getMessage());
-			sendResponse(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR,
-				Util.STATUS_MESSAGES.get(HttpURLConnection.HTTP_INTERNAL_ERROR).getBytes());
+			if (responseStream.abort()) {
+				sendResponse(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR,
+					Util.STATUS_MESSAGES.get(HttpURLConnection.HTTP_INTERNAL_ERROR).getBytes());
+			}
+		} catch (IOException ioe) {
+			System.err.println("File error in writing searched records: " + ioe.getMessage());
+			if (responseStream.abort()) {
+				sendResponse(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR,
+					Util.STATUS_MESSAGES.get(HttpURLConnection.HTTP_INTERNAL_ERROR).getBytes());
+			}
 		}
 	}
 
@@ -99,24 +134,7 @@ public class SearchHandler implements HttpHandler {
 	 * @throws IllegalArgumentException If the query string contains invalid or unsupported arguments.
 	 */
 	private Map<String, String> getSearchArgs(String query) throws IllegalArgumentException {
-		Map<String, String> searchArgs = new HashMap<>();
-		String[] argPairs = query.split("&");
-		for (String arg : argPairs) {
-			if (arg != null && !arg.isEmpty()) {
-				String[] keyValuePair = arg.split("=", 2);
-				if (keyValuePair.length != 2) {
-					throw new IllegalArgumentException("Empty search argument!");
-				}
-				String key = keyValuePair[0];
-				String value =  keyValuePair[1];
-				if (!key.equals("identification") && !key.equals("nickname") &&
-					!key.equals("after") && !key.equals("before")) {
-					throw new IllegalArgumentException("Invalid search argument!");
-				}
-				searchArgs.put(key, value);
-			}
-		}
-		return searchArgs;
+		return Util.parseQueryArgs(query, SEARCH_ARGS);
 	}
 
 	/**
@@ -1,81 +1,193 @@
 package com.o3.server;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class SearchQuery {
 
+	public static final int MAX_PAGE_SIZE = Integer.getInteger("search.maxPageSize", 1000);
+	private static final double EARTH_RADIUS = 6371.0088;	// Mean radius in kilometres
+	// Great-circle distance in kilometres from a point to the observatory "so", by the haversine formula
+	private static final String DISTANCE_SQL = "2 * " + EARTH_RADIUS + " * asin(min(1, sqrt(" +
+		"power(sin(radians(CAST(so.latitude AS REAL) - ?) / 2), 2) + " +
+		"cos(radians(?)) * cos(radians(CAST(so.latitude AS REAL))) * " +
+		"power(sin(radians(CAST(so.longitude AS REAL) - ?) / 2), 2))))";
+
 	private final String command;	// The dynamically built SQL command.
 	private final Map<String, String> params = new HashMap<>();		// Map of search parameters and their values.
+	private final int limit;	// Page size.
+	private final boolean ranked;	// Text search ordered by relevance.
+	// Sort key and id of the last row of the previous page, or null.
+	// The sort key is the time received, or the bits of the rank in a text search.
+	private final long[] cursor;
+	private final double[] circle;	// Latitude, longitude and radius in kilometres of a distance search, or null.
+	private final double[] box;	// South, west, north and east bounds in degrees of a bounding box search, or null.
 
 
 	/**
 	 * Constructs a SearchQuery object and builds the SQL command based on the provided search arguments.
+	 * Results are ordered by time received and id, and paged with the "limit" and "cursor" arguments.
+	 * Results of a "text" search are ordered by relevance instead, and the cursor holds the rank and id of a row.
+	 * Records can be limited to observatories within "radius" kilometres of a "latitude", "longitude" point,
+	 * or inside a "bbox" of south, west, north and east bounds in degrees.
 	 *
 	 * @param searchArgs A map of search arguments (key-value pairs) to filter the query.
+	 * @throws IllegalArgumentException If the page size, cursor, text or area is invalid.
 	 */
 	public SearchQuery(Map<String, String> searchArgs) {
-		this.command = buildCommand(searchArgs);
+		this.limit = parseLimit(searchArgs == null ? null : searchArgs.get("limit"));
+		this.ranked = searchArgs != null && searchArgs.containsKey("text");
+		String cursorArg = searchArgs == null ? null : searchArgs.get("cursor");
+		this.cursor = cursorArg == null ? null : ranked ? decodeRankCursor(cursorArg) : decodeCursor(cursorArg);
+		this.circle = parseCircle(searchArgs);
+		this.box = searchArgs != null && searchArgs.containsKey("bbox") ? parseBox(searchArgs.get("bbox")) : null;
+		String where = buildWhere(searchArgs);
+		// One row more than the page size tells if there is a next page
+		this.command = getDefault() + where +
+			(ranked ? " ORDER BY records_fts.rank, r.id LIMIT ?" : " ORDER BY r.time_received, r.id LIMIT ?");
 	}
 
 
 	/**
-	 * Dynamically builds the SQL command based on the provided search arguments.
+	 * Dynamically builds the WHERE clause based on the provided search arguments.
 	 *
 	 * @param searchArgs A map of search arguments (key-value pairs) to filter the query.
-	 * @return The dynamically built SQL command as a string.
+	 * @return The WHERE clause, or an empty string if there are no conditions.
 	 */
-	private String buildCommand(Map<String, String> searchArgs) {
-		// Start with the default SQL query.
-		StringBuilder sb = new StringBuilder(getDefault());
-		int added = 0;	// Tracks the number of conditions added to the WHERE clause.
+	private String buildWhere(Map<String, String> searchArgs) {
+		List<String> conditions = new ArrayList<>();
 		if (searchArgs != null && !searchArgs.isEmpty()) {
-			sb.append(" WHERE ");
 			// "nickname" search argument
 			if (searchArgs.containsKey("nickname")) {
-				sb.append("u.nickname = ? ");
+				conditions.add("u.nickname = ?");
 				params.put("nickname", searchArgs.get("nickname"));
 			}
 			// "identification" search argument
 			if (searchArgs.containsKey("identification")) {
-				if (added != params.size()) {
-					sb.append("AND ");
-					added++;
-				}
-				sb.append("r.identifier = ? ");
+				conditions.add("r.identifier = ?");
 				params.put("identification", searchArgs.get("identification"));
 			}
 			// "before" search argument
 			if (searchArgs.containsKey("before")) {
-				if (added != params.size()) {
-					sb.append("AND ");
-					added++;
-				}
-				sb.append("r.time_received < ? ");
+				conditions.add("r.time_received < ?");
 				params.put("before", searchArgs.get("before"));
 			}
 			// "after" search argument
 			if (searchArgs.containsKey("after")) {
-				if (added != params.size()) {
-					sb.append("AND ");
-				}
-				sb.append("r.time_received > ? ");
+				conditions.add("r.time_received > ?");
 				params.put("after", searchArgs.get("after"));
 			}
+			// "text" search argument
+			if (searchArgs.containsKey("text")) {
+				conditions.add("records_fts MATCH ?");
+				params.put("text", toMatchQuery(searchArgs.get("text")));
+			}
+			// "latitude", "longitude" and "radius" search arguments
+			if (circle != null) {
+				conditions.add(getAreaCondition(getBounds(circle), true));
+				params.put("circle", circle[0] + "," + circle[1] + "," + circle[2]);
+			}
+			// "bbox" search argument
+			if (box != null) {
+				conditions.add(getAreaCondition(box, false));
+				params.put("bbox", box[0] + "," + box[1] + "," + box[2] + "," + box[3]);
+			}
 		}
-		return sb.toString().trim();
+		// Continue after the last row of the previous page
+		if (cursor != null) {
+			conditions.add(ranked ? "(records_fts.rank, r.id) > (?, ?)" : "(r.time_received, r.id) > (?, ?)");
+		}
+		if (conditions.isEmpty()) {
+			return "";
+		}
+		return " WHERE " + String.join(" AND ", conditions);
 	}
 
 	public String getCommand() {
 		return command;
 	}
 
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Returns the normalized search arguments of this query. Queries selecting the same page get the same key,
+	 * regardless of the order of the arguments.
+	 *
+	 * @return The normalized search arguments.
+	 */
+	public String getKey() {
+		return new TreeMap<>(params) + ";limit=" + limit +
+			(cursor != null ? ";cursor=" + cursor[0] + ":" + cursor[1] : "");
+	}
+
+	/**
+	 * Checks if a record with the given fields passes the filters of this query. The cursor, text and area are not
+	 * checked, so a match means the record may be on the page selected by the query.
+	 *
+	 * @param nickname     The nickname of the record owner.
+	 * @param identifier   The identifier of the record.
+	 * @param timeReceived The time the record was received in milliseconds since epoch.
+	 * @return True if the record passes the filters, false otherwise.
+	 */
+	public boolean matches(String nickname, String identifier, long timeReceived) {
+		if (params.containsKey("nickname") && !params.get("nickname").equals(nickname)) {
+			return false;
+		}
+		if (params.containsKey("identification") && !params.get("identification").equals(identifier)) {
+			return false;
+		}
+		try {
+			if (params.containsKey("before") && timeReceived >= parseStringTime(params.get("before"))) {
+				return false;
+			}
+			if (params.containsKey("after") && timeReceived <= parseStringTime(params.get("after"))) {
+				return false;
+			}
+		} catch (DateTimeParseException e) {
+			return true;
+		}
+		return true;
+	}
+
+	/**
+	 * Creates an entity tag for the results of this query at the given data version. Queries with the same
+	 * filters, page size and cursor get the same tag until the data changes. Compressed representations get
+	 * their own tag.
+	 *
+	 * @param dataVersion The data version of the database.
+	 * @param encoding    The content coding of the response, or null if it is not compressed.
+	 * @return The quoted entity tag.
+	 */
+	public String getETag(String dataVersion, String encoding) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(getKey().getBytes(StandardCharsets.UTF_8));
+			return "\"" + dataVersion + "-" +
+				Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 12)) +
+				(encoding != null ? "-" + encoding : "") + "\"";
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
 	/**
 	 * Sets the parameters for the prepared statement based on the search arguments.
+	 * The statement selects one row more than the page size, the extra row is not part of the page.
 	 *
 	 * @param ps The prepared statement to set the parameters for.
 	 */
@@ -98,6 +210,283 @@ public class SearchQuery {
 		if (params.containsKey("after")) {
 			time = parseStringTime(params.get("after"));
 			ps.setLong(index, time);
+			index++;
+		}
+		if (params.containsKey("text")) {
+			ps.setString(index, params.get("text"));
+			index++;
+		}
+		if (circle != null) {
+			index = setAreaParams(ps, index, getBounds(circle));
+			ps.setDouble(index++, circle[0]);
+			ps.setDouble(index++, circle[0]);
+			ps.setDouble(index++, circle[1]);
+			ps.setDouble(index++, circle[2]);
+		}
+		if (box != null) {
+			index = setAreaParams(ps, index, box);
+		}
+		if (cursor != null) {
+			if (ranked) {
+				ps.setDouble(index, Double.longBitsToDouble(cursor[0]));
+			} else {
+				ps.setLong(index, cursor[0]);
+			}
+			index++;
+			ps.setLong(index, cursor[1]);
+			index++;
+		}
+		ps.setInt(index, limit + 1);
+	}
+
+	/**
+	 * Parses the requested page size. The page size is limited to the maximum page size.
+	 *
+	 * @param limit The requested page size, or null for the maximum page size.
+	 * @return The page size.
+	 * @throws IllegalArgumentException If the page size is not a positive number.
+	 */
+	private int parseLimit(String limit) {
+		if (limit == null) {
+			return MAX_PAGE_SIZE;
+		}
+		try {
+			int value = Integer.parseInt(limit);
+			if (value < 1) {
+				throw new IllegalArgumentException("Page size must be positive!");
+			}
+			return Math.min(value, MAX_PAGE_SIZE);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid page size!");
+		}
+	}
+
+	/**
+	 * Builds the condition selecting records of observatories inside an area. The R-tree index finds the
+	 * observatories inside the bounding box of the area, and a distance search then checks the exact
+	 * great-circle distance. A box with west greater than east crosses the antimeridian.
+	 *
+	 * @param bounds   The south, west, north and east bounds of the area in degrees.
+	 * @param distance Also checks the distance to the center of the distance search.
+	 * @return The condition.
+	 */
+	private static String getAreaCondition(double[] bounds, boolean distance) {
+		return "r.observatory_id IN (SELECT t.id FROM observatories_rtree t" +
+			(distance ? " JOIN observatories so ON so.id = t.id" : "") +
+			" WHERE t.max_lat >= ? AND t.min_lat <= ? AND " +
+			(bounds[1] <= bounds[3] ? "t.max_lon >= ? AND t.min_lon <= ?" : "(t.max_lon >= ? OR t.min_lon <= ?)") +
+			(distance ? " AND " + DISTANCE_SQL + " <= ?" : "") + ")";
+	}
+
+	/**
+	 * Sets the bounding box parameters of an area condition.
+	 *
+	 * @param ps     The prepared statement to set the parameters for.
+	 * @param index  The index of the first parameter.
+	 * @param bounds The south, west, north and east bounds of the area in degrees.
+	 * @return The index of the next parameter.
+	 */
+	private static int setAreaParams(PreparedStatement ps, int index, double[] bounds) throws SQLException {
+		ps.setDouble(index++, bounds[0]);
+		ps.setDouble(index++, bounds[2]);
+		ps.setDouble(index++, bounds[1]);
+		ps.setDouble(index++, bounds[3]);
+		return index;
+	}
+
+	/**
+	 * Calculates the bounding box of a distance search. A circle containing a pole covers all longitudes.
+	 *
+	 * @param circle The latitude, longitude and radius in kilometres of the search.
+	 * @return The south, west, north and east bounds in degrees.
+	 */
+	static double[] getBounds(double[] circle) {
+		double angle = circle[2] / EARTH_RADIUS;
+		double south = circle[0] - Math.toDegrees(angle);
+		double north = circle[0] + Math.toDegrees(angle);
+		if (south <= -90 || north >= 90) {
+			return new double[]{Math.max(south, -90), -180, Math.min(north, 90), 180};
+		}
+		double deltaLon = Math.toDegrees(Math.asin(Math.sin(angle) / Math.cos(Math.toRadians(circle[0]))));
+		double west = circle[1] - deltaLon;
+		double east = circle[1] + deltaLon;
+		if (west < -180) {
+			west += 360;
+		}
+		if (east > 180) {
+			east -= 360;
+		}
+		return new double[]{south, west, north, east};
+	}
+
+	/**
+	 * Parses the "latitude", "longitude" and "radius" search arguments.
+	 *
+	 * @param searchArgs A map of search arguments (key-value pairs) to filter the query.
+	 * @return The latitude, longitude and radius in kilometres, or null if there is no distance search.
+	 * @throws IllegalArgumentException If an argument is missing or invalid.
+	 */
+	private static double[] parseCircle(Map<String, String> searchArgs) {
+		if (searchArgs == null || !(searchArgs.containsKey("latitude") || searchArgs.containsKey("longitude")
+			|| searchArgs.containsKey("radius"))) {
+			return null;
+		}
+		if (!(searchArgs.containsKey("latitude") && searchArgs.containsKey("longitude")
+			&& searchArgs.containsKey("radius"))) {
+			throw new IllegalArgumentException("Latitude, longitude and radius must be given together!");
+		}
+		double latitude = parseCoordinate(searchArgs.get("latitude"), 90);
+		double longitude = parseCoordinate(searchArgs.get("longitude"), 180);
+		double radius = parseCoordinate(searchArgs.get("radius"), Math.PI * EARTH_RADIUS);
+		if (radius <= 0) {
+			throw new IllegalArgumentException("Radius must be positive!");
+		}
+		return new double[]{latitude, longitude, radius};
+	}
+
+	/**
+	 * Parses the "bbox" search argument.
+	 *
+	 * @param bbox The south, west, north and east bounds in degrees, separated by commas.
+	 * @return The bounds.
+	 * @throws IllegalArgumentException If the bounding box is invalid.
+	 */
+	private static double[] parseBox(String bbox) {
+		String[] parts = bbox.split(",");
+		if (parts.length != 4) {
+			throw new IllegalArgumentException("Bounding box must have four bounds!");
+		}
+		double[] bounds = {parseCoordinate(parts[0], 90), parseCoordinate(parts[1], 180),
+			parseCoordinate(parts[2], 90), parseCoordinate(parts[3], 180)};
+		if (bounds[0] > bounds[2]) {
+			throw new IllegalArgumentException("Bounding box south is north of north!");
+		}
+		return bounds;
+	}
+
+	/**
+	 * Parses a number limited to a range.
+	 *
+	 * @param value The number.
+	 * @param max   The largest absolute value allowed.
+	 * @return The parsed number.
+	 * @throws IllegalArgumentException If the value is not a number or it is outside the range.
+	 */
+	private static double parseCoordinate(String value, double max) {
+		try {
+			double number = Double.parseDouble(value.trim());
+			if (!(number >= -max && number <= max)) {
+				throw new IllegalArgumentException("Coordinate out of range!");
+			}
+			return number;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid coordinate!");
+		}
+	}
+
+	/**
+	 * Converts the "text" search argument to an FTS5 query matching records containing every word of the text.
+	 * Each word is quoted, so FTS5 operators and syntax characters in the text are searched as plain text.
+	 *
+	 * @param text The words to search for.
+	 * @return The FTS5 query.
+	 * @throws IllegalArgumentException If the text has no words.
+	 */
+	private static String toMatchQuery(String text) {
+		List<String> terms = new ArrayList<>();
+		for (String word : text.trim().split("\\s+")) {
+			if (!word.isEmpty()) {
+				terms.add("\"" + word.replace("\"", "\"\"") + "\"");
+			}
+		}
+		if (terms.isEmpty()) {
+			throw new IllegalArgumentException("Search text cannot be empty!");
+		}
+		return String.join(" ", terms);
+	}
+
+	/**
+	 * Reads the sort key of the current row of the results of this query.
+	 *
+	 * @param results The result set positioned on a row.
+	 * @return The time received, or the bits of the rank in a text search.
+	 */
+	public long getSortKey(ResultSet results) throws SQLException {
+		return ranked ? Double.doubleToLongBits(results.getDouble("rank")) : results.getLong("time_received");
+	}
+
+	/**
+	 * Creates the cursor of the page following the page selected by this query.
+	 *
+	 * @param sortKey The sort key of the last row of the page, read with getSortKey.
+	 * @param id      The id of the last row of the page.
+	 * @return The encoded cursor.
+	 */
+	public String getNextCursor(long sortKey, long id) {
+		return ranked ? encodeRankCursor(Double.longBitsToDouble(sortKey), id) : encodeCursor(sortKey, id);
+	}
+
+	/**
+	 * Creates an opaque cursor pointing after the given row.
+	 *
+	 * @param timeReceived The time received of the row.
+	 * @param id           The id of the row.
+	 * @return The encoded cursor.
+	 */
+	public static String encodeCursor(long timeReceived, long id) {
+		String value = timeReceived + ":" + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Decodes a cursor created by encodeCursor.
+	 *
+	 * @param cursor The encoded cursor.
+	 * @return The time received and id of the row.
+	 * @throws IllegalArgumentException If the cursor is invalid.
+	 */
+	private static long[] decodeCursor(String cursor) {
+		try {
+			String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			String[] parts = value.split(":", 2);
+			return new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Invalid cursor!");
+		}
+	}
+
+	/**
+	 * Creates an opaque cursor of a text search pointing after the given row. Pages continue from the rank
+	 * of the row, so deep pages cost no more than the first page. The rank of a record depends on the other
+	 * matching records, so a change to them between pages may move a record across the cursor.
+	 *
+	 * @param rank The full-text rank of the row.
+	 * @param id   The id of the row.
+	 * @return The encoded cursor.
+	 */
+	public static String encodeRankCursor(double rank, long id) {
+		String value = "rank:" + rank + ":" + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Decodes a cursor created by encodeRankCursor.
+	 *
+	 * @param cursor The encoded cursor.
+	 * @return The bits of the rank and the id of the row.
+	 * @throws IllegalArgumentException If the cursor is invalid.
+	 */
+	private static long[] decodeRankCursor(String cursor) {
+		try {
+			String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			String[] parts = value.split(":", 3);
+			double rank = Double.parseDouble(parts[1]);
+			if (!parts[0].equals("rank") || !Double.isFinite(rank)) {
+				throw new IllegalArgumentException("Not a text search cursor");
+			}
+			return new long[]{Double.doubleToLongBits(rank), Long.parseLong(parts[2])};
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Invalid cursor!");
 		}
 	}
 
@@ -115,7 +504,8 @@ public class SearchQuery {
 
 	/**
 	 * Returns the default SQL query for retrieving observation records.
-	 * This query includes joins with users, observatories, and weather data tables.
+	 * This query includes joins with users, observatories, weather data and AI description job tables,
+	 * and the full-text index in a text search.
 	 *
 	 * @return The default SQL query as a string.
 	 */
@@ -125,11 +515,14 @@ public class SearchQuery {
 			"r.update_reason, r.modified, " +
 			"u.nickname AS owner, o.name AS name, o.latitude AS latitude, o.longitude AS longitude, " +
 			"w.temperature AS temperature, w.pressure AS pressure, w.humidity AS humidity, " +
-			"w.cloud_cover AS clouds, w.light_volume AS light " +
+			"w.cloud_cover AS clouds, w.light_volume AS light, e.status AS description_status" +
+			(ranked ? ", records_fts.rank AS rank " : " ") +
 			"FROM records r " +
 			"JOIN users u ON r.owner_id = u.id " +
+			(ranked ? "JOIN records_fts ON records_fts.rowid = r.id " : "") +
 			"LEFT JOIN observatories o ON r.observatory_id = o.id " +
-			"LEFT JOIN weather w ON o.weather_id = w.id";
+			"LEFT JOIN weather w ON o.weather_id = w.id " +
+			"LEFT JOIN enrichment_jobs e ON e.record_id = r.id";
 	}
 
 }
@@ -0,0 +1,226 @@
+package com.o3.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SearchResultCache {
+
+	private final ByteBuffer arena;	// Off-heap storage of the cached pages
+	private final int blockSize;
+	private final int[] freeBlocks;	// Stack of unused block indexes
+	private int freeCount;
+	private final int maxEntryBytes;
+	private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long changeCount;	// Changes seen by the cache, guarded by entries
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * A page of search results stored in the arena.
+	 *
+	 * @param query      The query producing the page, used to decide if a change affects the page.
+	 * @param nextCursor The cursor of the next page, or null if this is the last page.
+	 * @param length     The length of the UTF-8 encoded JSON array in bytes.
+	 * @param blocks     The arena blocks holding the JSON array in order.
+	 */
+	private record Entry(SearchQuery query, String nextCursor, int length, int[] blocks) {
+	}
+
+	/**
+	 * A cached page of search results.
+	 *
+	 * @param nextCursor The cursor of the next page, or null if this is the last page.
+	 * @param body       The JSON array of the observations.
+	 */
+	public record Page(String nextCursor, String body) {
+	}
+
+	/**
+	 * A committed change to an observation record, described by the fields the search filters use.
+	 *
+	 * @param nickname     The nickname of the record owner.
+	 * @param identifier   The identifier of the record.
+	 * @param timeReceived The time the record was received in milliseconds since epoch.
+	 */
+	public record Change(String nickname, String identifier, long timeReceived) {
+	}
+
+	/**
+	 * Constructs a cache of serialized search result pages. Pages are stored in a direct buffer divided into
+	 * fixed size blocks, so cached results add no objects to the heap besides a small entry per page.
+	 * Least recently used pages are evicted when the buffer is full.
+	 *
+	 * @param capacityBytes The size of the buffer in bytes.
+	 * @param blockSize     The size of a block in bytes.
+	 * @throws IllegalArgumentException If the block size is not positive or the buffer cannot hold one block.
+	 */
+	public SearchResultCache(int capacityBytes, int blockSize) {
+		if (blockSize <= 0 || capacityBytes < blockSize) {
+			throw new IllegalArgumentException("Search cache of " + capacityBytes +
+				" bytes cannot hold a block of " + blockSize + " bytes");
+		}
+		this.blockSize = blockSize;
+		int blockCount = capacityBytes / blockSize;
+		this.arena = ByteBuffer.allocateDirect(blockCount * blockSize);
+		this.freeBlocks = new int[blockCount];
+		for (int i = 0; i < blockCount; i++) {
+			freeBlocks[i] = blockCount - 1 - i;
+		}
+		this.freeCount = blockCount;
+		// One page may not push out most of the cache
+		this.maxEntryBytes = Math.min(Math.max(blockSize, capacityBytes / 8), blockCount * blockSize);
+	}
+
+	/**
+	 * Returns a cached page.
+	 *
+	 * @param key The normalized search arguments of the page.
+	 * @return The cached page, or null if the page is not cached.
+	 */
+	public Page get(String key) {
+		byte[] body;
+		String nextCursor;
+		synchronized (entries) {
+			Entry entry = entries.get(key);
+			if (entry == null) {
+				misses.incrementAndGet();
+				return null;
+			}
+			body = new byte[entry.length()];
+			for (int i = 0; i < entry.blocks().length; i++) {
+				int offset = i * blockSize;
+				arena.get(entry.blocks()[i] * blockSize, body, offset, Math.min(blockSize, body.length - offset));
+			}
+			nextCursor = entry.nextCursor();
+		}
+		hits.incrementAndGet();
+		return new Page(nextCursor, new String(body, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Returns the number of changes seen so far. A page read after this call can be cached with put
+	 * only if no change has been seen in between.
+	 *
+	 * @return The change stamp.
+	 */
+	public long getStamp() {
+		synchronized (entries) {
+			return changeCount;
+		}
+	}
+
+	/**
+	 * Stores a page of search results, evicting least recently used pages if needed. The page is not stored if it is
+	 * too large, or if a change was seen after the stamp was taken, since the page may have been read before the change.
+	 *
+	 * @param key        The normalized search arguments of the page.
+	 * @param query      The query producing the page.
+	 * @param nextCursor The cursor of the next page, or null if this is the last page.
+	 * @param body       The JSON array of the observations.
+	 * @param stamp      The change stamp taken before the page was read.
+	 * @return True if the page was stored, false otherwise.
+	 */
+	public boolean put(String key, SearchQuery query, String nextCursor, String body, long stamp) {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > maxEntryBytes) {
+			return false;
+		}
+		int[] blocks = new int[(bytes.length + blockSize - 1) / blockSize];
+		synchronized (entries) {
+			if (stamp != changeCount) {
+				return false;
+			}
+			Entry old = entries.remove(key);
+			if (old != null) {
+				free(old);
+			}
+			Iterator<Entry> eldest = entries.values().iterator();
+			while (freeCount < blocks.length && eldest.hasNext()) {
+				free(eldest.next());
+				eldest.remove();
+				evictions.incrementAndGet();
+			}
+			for (int i = 0; i < blocks.length; i++) {
+				blocks[i] = freeBlocks[--freeCount];
+				int offset = i * blockSize;
+				arena.put(blocks[i] * blockSize, bytes, offset, Math.min(blockSize, bytes.length - offset));
+			}
+			entries.put(key, new Entry(query, nextCursor, bytes.length, blocks));
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the pages whose results may be affected by committed changes. Must be called after the changes
+	 * have been committed and before readers can see a new data version.
+	 *
+	 * @param changes The committed changes.
+	 */
+	public void invalidate(List<Change> changes) {
+		synchronized (entries) {
+			changeCount++;
+			Iterator<Entry> iterator = entries.values().iterator();
+			while (iterator.hasNext()) {
+				Entry entry = iterator.next();
+				for (Change change : changes) {
+					if (entry.query().matches(change.nickname(), change.identifier(), change.timeReceived())) {
+						free(entry);
+						iterator.remove();
+						invalidations.incrementAndGet();
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	private void free(Entry entry) {
+		for (int block : entry.blocks()) {
+			freeBlocks[freeCount++] = block;
+		}
+	}
+
+	public int getEntryCount() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public long getUsedBytes() {
+		synchronized (entries) {
+			return (long) (freeBlocks.length - freeCount) * blockSize;
+		}
+	}
+
+	public long getCapacityBytes() {
+		return arena.capacity();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public double getHitRatio() {
+		long total = hits.get() + misses.get();
+		return total == 0 ? 0.0 : (double) hits.get() / total;
+	}
+
+	public long getInvalidations() {
+		return invalidations.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+}
@@ -7,6 +7,9 @@ import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.security.KeyStore;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import static com.o3.server.Util.sendResponse;
@@ -14,8 +17,18 @@ import static com.o3.server.Util.sendResponse;
 
 public class Server implements HttpHandler {
 
-	private static final int port = 8001;
-	private static final String databaseFile = "messages.db";
+	private static final int port = Integer.getInteger("server.port", 8001);
+	private static final String databaseFile = System.getProperty("server.database", "messages.db");
+	private static final boolean asyncDescriptions = Boolean.getBoolean("llm.async");
+	private static final long prefetchInterval = Long.getLong("weather.prefetchInterval", 300000);	// 0 disables
+	private static final int prefetchConcurrency = Integer.getInteger("weather.prefetchConcurrency", 4);
+	private static final long prefetchJitter = Long.getLong("weather.prefetchJitter", 30000);
+	private static final boolean admissionControl =
+		Boolean.parseBoolean(System.getProperty("admission.enabled", "true"));
+	private static final String executorMode = System.getProperty("server.executor", "cached");	// cached or virtual
+	private static final int shutdownDelay = Integer.getInteger("server.shutdownDelay", 2);	// Seconds
+	private static final List<RequestMetricsFilter> requestMetrics = new CopyOnWriteArrayList<>();
+	private static final List<AdmissionFilter> admissionFilters = new CopyOnWriteArrayList<>();
 
 	private Server() {
 	}
@@ -112,26 +125,38 @@ public class Server implements HttpHandler {
 	 * @param server The HTTPS server to configure.
 	 * @param path   The path for the HTTP context.
 	 * @param auth   The authenticator to use for the context.
-	 * @param type   The type of context to create (e.g., "REGISTRATION", "DATA", "SEARCH", "TEST").
-	 * @param ws     The WeatherService instance (used for "DATA" context).
+	 * @param type   The type of context to create (e.g., "REGISTRATION", "DATA", "BULK", "SEARCH", "METRICS", "TEST").
+	 * @param ws     The WeatherService instance (used for "DATA", "BULK" and "METRICS" contexts).
+	 * @param worker The AI description worker, or null for synchronous descriptions (used for "DATA" and "BULK" contexts).
 	 */
 	private static void createContext(HttpsServer server,
 									  String path,
 									  UserAuthenticator auth,
-									  String type, WeatherService ws) throws SQLException, IOException {
+									  String type, WeatherService ws,
+									  EnrichmentWorker worker) throws SQLException, IOException {
 		HttpContext context;
 		type = type.toUpperCase();
 		switch (type) {
 			case "REGISTRATION":
-				server.createContext(path, new RegistrationHandler(auth));
+				context = server.createContext(path, new RegistrationHandler(auth));
+				addFilters(context, path, null);
 				break;
 			case "DATA":
-				context = server.createContext(path, new ObservationHandler(databaseFile, ws));
-				context.setAuthenticator(auth);
+				context = server.createContext(path, new ObservationHandler(databaseFile, ws, worker));
+				addFilters(context, path, auth);
+				break;
+			case "BULK":
+				context = server.createContext(path, new BulkObservationHandler(databaseFile, ws, worker));
+				addFilters(context, path, auth);
 				break;
 			case "SEARCH":
 				context = server.createContext(path, new SearchHandler(databaseFile));
-				context.setAuthenticator(auth);
+				addFilters(context, path, auth);
+				break;
+			case "METRICS":
+				context = server.createContext(path, new MetricsHandler(databaseFile, ws, requestMetrics, admissionFilters));
+				// Metrics reveal the load and internals of the server, so scrapers authenticate like other clients
+				context.getFilters().add(new AuthenticationFilter(auth));
 				break;
 			case "TEST":
 				server.createContext(path, new Server());
@@ -143,9 +168,78 @@ public class Server implements HttpHandler {
 		}
 	}
 
+	/**
+	 * Adds request metrics, admission control and authentication to a context. Admission control is added unless
+	 * disabled with -Dadmission.enabled=false, with limits read from system properties named after the path, e.g.
+	 * "admission.datarecord.bulk.limit" for "/datarecord/bulk". Rejected requests are still counted in the metrics.
+	 * Authentication runs after both, so credential checks are also limited and failed ones are counted.
+	 *
+	 * @param context The HTTP context.
+	 * @param path    The path of the context.
+	 * @param auth    The authenticator of the context, or null if the context is open.
+	 */
+	private static void addFilters(HttpContext context, String path, UserAuthenticator auth) {
+		RequestMetricsFilter metrics = new RequestMetricsFilter(path);
+		requestMetrics.add(metrics);
+		context.getFilters().add(metrics);
+		if (admissionControl) {
+			AdmissionFilter admission = AdmissionFilter.fromProperties(path.substring(1).replace('/', '.'));
+			admissionFilters.add(admission);
+			context.getFilters().add(admission);
+		}
+		if (auth != null) {
+			context.getFilters().add(new AuthenticationFilter(auth));
+		}
+	}
+
+	/**
+	 * Creates the executor running the HTTP exchanges.
+	 * In "virtual" mode each exchange runs on its own virtual thread, so requests blocked on SQLite, the weather
+	 * service or the LLM pool do not each hold a platform thread. HikariCP waits for connections with
+	 * java.util.concurrent primitives and the short synchronized sections of the caches do no I/O, so neither
+	 * pins a carrier thread while blocked. SQLite and gpt4all calls are native and pin their carrier for the
+	 * duration of the call, which is bounded by the connection pool sizes and llm.poolSize. The JDK HttpsServer
+	 * reads TLS records inside a synchronized block, so waiting for a slow request body pins the carrier on
+	 * JDK 21 (shown by -Djdk.tracePinnedThreads=full).
+	 *
+	 * @param mode The executor mode, "cached" for a cached platform thread pool or "virtual".
+	 * @return The executor.
+	 * @throws IllegalArgumentException If the mode is unknown.
+	 */
+	public static ExecutorService createExecutor(String mode) {
+		switch (mode.toLowerCase()) {
+			case "cached":
+				return Executors.newCachedThreadPool();
+			case "virtual":
+				return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("exchange-", 0).factory());
+			default:
+				throw new IllegalArgumentException("Unknown executor mode: " + mode);
+		}
+	}
+
+	/**
+	 * Stops the server and its background work. Exchanges in progress get a moment to finish before the
+	 * LLM models are closed, so models returned by finishing requests are closed as well.
+	 *
+	 * @param server     The HTTPS server.
+	 * @param prefetcher The weather prefetcher, or null if prefetching is disabled.
+	 * @param worker     The AI description worker, or null for synchronous descriptions.
+	 */
+	private static void shutdown(HttpsServer server, WeatherPrefetcher prefetcher, EnrichmentWorker worker) {
+		server.stop(shutdownDelay);
+		if (prefetcher != null) {
+			prefetcher.shutdown();
+		}
+		if (worker != null) {
+			worker.shutdown();
+		}
+		LLMService.shutdown();
+		System.out.println("Server stopped");
+	}
+
 	public static void main(String[] args) {
 		try {
-			// Create the https server to port 8001 with default logger
+			// Create the https server to the configured port (default 8001) with default logger
 			HttpsServer server = HttpsServer.create(new InetSocketAddress(port),0);
 
 			// Initialize database
@@ -154,23 +248,47 @@ public class Server implements HttpHandler {
 			// Create client for communication with weather service
 			WeatherService weatherService = new WeatherService();
 
+			// Keep weather of recently active observatories fresh in the weather cache
+			WeatherPrefetcher prefetcher = prefetchInterval > 0 ? new WeatherPrefetcher(databaseFile, weatherService,
+				prefetchInterval, prefetchConcurrency, prefetchJitter) : null;
+			if (prefetcher != null) {
+				prefetcher.start();
+			}
+
+			// Load LLM models in the background and enable summary cache
+			LLMService.warmUp();
+			LLMService.enableSummaryCache(databaseFile);
+
+			// Start background AI description worker if enabled
+			EnrichmentWorker enrichmentWorker = asyncDescriptions ? new EnrichmentWorker(databaseFile) : null;
+			if (enrichmentWorker != null) {
+				enrichmentWorker.start();
+			}
+
 			// Create authenticator
 			UserAuthenticator authenticator = new UserAuthenticator(databaseFile);
 
 			// Create contexts
-			createContext(server, "/datarecord", authenticator, "data", weatherService);
-			createContext(server, "/registration", authenticator, "registration", weatherService);
-			createContext(server, "/search", authenticator, "search", weatherService);
+			createContext(server, "/datarecord", authenticator, "data", weatherService, enrichmentWorker);
+			createContext(server, "/datarecord/bulk", authenticator, "bulk", weatherService, enrichmentWorker);
+			createContext(server, "/registration", authenticator, "registration", weatherService, enrichmentWorker);
+			createContext(server, "/search", authenticator, "search", weatherService, enrichmentWorker);
+			createContext(server, "/metrics", authenticator, "metrics", weatherService, enrichmentWorker);
 
 			// Setup and configure SSLContext
 			SSLContextSetup(server, args);
 
 			// Set server to use multithreading
-			server.setExecutor(Executors.newCachedThreadPool());
+			server.setExecutor(createExecutor(executorMode));
+			System.out.println("Using " + executorMode + " executor");
 
 			server.start();
 			System.out.println("Server started on port: " + port);
 
+			// Stop background work and free the native memory of the LLM models when the JVM exits
+			Runtime.getRuntime().addShutdownHook(new Thread(
+				() -> shutdown(server, prefetcher, enrichmentWorker), "server-shutdown"));
+
 		} catch (IOException e) {
 			System.err.println("[SERVER START FAIL] File error: " + e.getMessage());
 		} catch (SQLException e) {
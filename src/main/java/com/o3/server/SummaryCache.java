@@ -0,0 +1,129 @@
+package com.o3.server;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SummaryCache {
+
+	private final MessageDataBase database;
+	private final String model;
+	private final Map<String, Entry> memory;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong savedMillis = new AtomicLong();
+
+	public record Entry(String summary, long generationMillis) {
+	}
+
+	/**
+	 * Constructs a summary cache backed by the database with an in-memory LRU front.
+	 *
+	 * @param dbName        The name of the database file.
+	 * @param model         The name of the model producing the summaries.
+	 * @param memoryEntries Maximum number of summaries kept in memory.
+	 */
+	public SummaryCache(String dbName, String model, int memoryEntries) throws SQLException, IOException {
+		this.database = MessageDataBase.getInstance(dbName);
+		this.model = model;
+		this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > memoryEntries;
+			}
+		};
+	}
+
+	/**
+	 * Looks up a summary generated earlier for the same prompt input.
+	 *
+	 * @param input The truncated prompt input.
+	 * @return The cached summary, or null if none is found.
+	 */
+	public String get(String input) {
+		String key = hash(input);
+		Entry entry;
+		synchronized (memory) {
+			entry = memory.get(key);
+		}
+		if (entry == null) {
+			try {
+				entry = database.getCachedSummary(key, model);
+			} catch (SQLException e) {
+				System.err.println("SQL error in reading summary cache: " + e.getMessage());
+			}
+			if (entry != null) {
+				synchronized (memory) {
+					memory.put(key, entry);
+				}
+			}
+		}
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		savedMillis.addAndGet(entry.generationMillis());
+		return entry.summary();
+	}
+
+	/**
+	 * Stores a generated summary.
+	 *
+	 * @param input            The truncated prompt input.
+	 * @param summary          The generated summary.
+	 * @param generationMillis The time used to generate the summary in milliseconds.
+	 */
+	public void put(String input, String summary, long generationMillis) {
+		String key = hash(input);
+		Entry entry = new Entry(summary, generationMillis);
+		synchronized (memory) {
+			memory.put(key, entry);
+		}
+		try {
+			database.insertCachedSummary(key, model, entry);
+		} catch (SQLException e) {
+			System.err.println("SQL error in writing summary cache: " + e.getMessage());
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public double getHitRatio() {
+		long total = hits.get() + misses.get();
+		return total == 0 ? 0.0 : (double) hits.get() / total;
+	}
+
+	public long getSavedMillis() {
+		return savedMillis.get();
+	}
+
+	/**
+	 * Calculates the cache key of a prompt input. Runs of whitespace are collapsed,
+	 * so re-submissions differing only in formatting share the same summary.
+	 *
+	 * @param input The truncated prompt input.
+	 * @return The hex encoded SHA-256 hash of the normalized input.
+	 */
+	private String hash(String input) {
+		String normalized = input.strip().replaceAll("\\s+", " ");
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(md.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available!", e);
+		}
+	}
+}
@@ -6,17 +6,37 @@ import com.sun.net.httpserver.BasicAuthenticator;
 
 public class UserAuthenticator extends BasicAuthenticator {
 
+	private static final int CACHE_SIZE = 1024;
+	private static final long CACHE_TTL = 300000;	// 5 minutes
+
 	private final MessageDataBase database;
+	private final CredentialCache credentialCache;
 
 	public UserAuthenticator(String dbName) throws SQLException, IOException {
 		super("datarecord");
 		database = MessageDataBase.getInstance(dbName);
+		credentialCache = new CredentialCache(CACHE_SIZE, CACHE_TTL);
 	}
 
+	/**
+	 * Checks user credentials. Recently verified credentials are answered from the credential cache
+	 * without running the password hash or touching the database.
+	 *
+	 * @param username The username.
+	 * @param password The plain text password.
+	 * @return True if the credentials are valid, false otherwise.
+	 */
 	@Override
 	public boolean checkCredentials(String username, String password) {
+		if (credentialCache.isVerified(username, password)) {
+			return true;
+		}
 		try {
-			return database.authenticateUser(username, password);
+			boolean valid = database.authenticateUser(username, password);
+			if (valid) {
+				credentialCache.putVerified(username, password);
+			}
+			return valid;
 		} catch (SQLException e) {
 			System.err.println("Database error during authentication: " + e.getMessage());
 			return false;
@@ -51,5 +71,19 @@ public class UserAuthenticator extends BasicAuthenticator {
 
 	public void addUser(User newUser) throws SQLException {
 		database.insertUser(newUser);
+		credentialCache.invalidate(newUser.getUsername());
+	}
+
+	/**
+	 * Drops cached credentials of a user. Must be called whenever the user's password changes.
+	 *
+	 * @param username The username whose cached credentials are removed.
+	 */
+	public void invalidateCredentials(String username) {
+		credentialCache.invalidate(username);
+	}
+
+	public CredentialCache getCredentialCache() {
+		return credentialCache;
 	}
 }
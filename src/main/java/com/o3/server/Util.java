@@ -9,8 +9,10 @@ import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.nio.charset.StandardCharsets;
 import java.time.*;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
+import java.util.Set;
 
 public class Util {
 
@@ -21,9 +23,14 @@ public class Util {
 		HttpURLConnection.HTTP_FORBIDDEN, "Forbidden",
 		HttpURLConnection.HTTP_NOT_FOUND, "Not Found",
 		HttpURLConnection.HTTP_INTERNAL_ERROR, "Internal Server Error",
-		HttpURLConnection.HTTP_NOT_IMPLEMENTED, "Not Implemented"
+		HttpURLConnection.HTTP_NOT_IMPLEMENTED, "Not Implemented",
+		HttpURLConnection.HTTP_UNAVAILABLE, "Service Unavailable"
 	);
 
+	public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+	public static final String ETAG_HEADER = "ETag";
+	public static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+
 	public Util() {
 	}
 
@@ -96,6 +103,70 @@ public class Util {
 	}
 
 
+	/**
+	 * Parses a URI query string into a map of arguments.
+	 *
+	 * @param query   The query string from the URI, may be null.
+	 * @param allowed The allowed argument names.
+	 * @return A map of arguments (key-value pairs).
+	 * @throws IllegalArgumentException If the query string contains empty or unsupported arguments.
+	 */
+	public static Map<String, String> parseQueryArgs(String query, Set<String> allowed)
+		throws IllegalArgumentException {
+		Map<String, String> args = new HashMap<>();
+		if (query == null || query.isEmpty()) {
+			return args;
+		}
+		for (String arg : query.split("&")) {
+			if (arg != null && !arg.isEmpty()) {
+				String[] keyValuePair = arg.split("=", 2);
+				if (keyValuePair.length != 2) {
+					throw new IllegalArgumentException("Empty search argument!");
+				}
+				if (!allowed.contains(keyValuePair[0])) {
+					throw new IllegalArgumentException("Invalid search argument!");
+				}
+				args.put(keyValuePair[0], keyValuePair[1]);
+			}
+		}
+		return args;
+	}
+
+	/**
+	 * Checks the entity tag of the current response against the "If-None-Match" request header.
+	 * Tags are compared weakly, ignoring the "W/" prefix.
+	 *
+	 * @param exchange The HTTP exchange object containing the request and response.
+	 * @param etag     The quoted entity tag of the current response.
+	 * @return True if the client already has the current response and 304 should be sent, false otherwise.
+	 */
+	public static boolean isNotModified(HttpExchange exchange, String etag) {
+		for (String header : exchange.getRequestHeaders().getOrDefault(IF_NONE_MATCH_HEADER, List.of())) {
+			for (String tag : header.split(",")) {
+				tag = tag.trim();
+				if (tag.startsWith("W/")) {
+					tag = tag.substring(2);
+				}
+				if (tag.equals("*") || tag.equals(etag)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sets the entity tag of the response and asks clients to revalidate before reusing it. Only set on 200 and
+	 * 304 responses, so an error response does not carry a validator of a body that was never produced.
+	 *
+	 * @param exchange The HTTP exchange object containing the request and response.
+	 * @param etag     The quoted entity tag of the response.
+	 */
+	public static void setETag(HttpExchange exchange, String etag) {
+		exchange.getResponseHeaders().set(ETAG_HEADER, etag);
+		exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+	}
+
 	/**
 	 * Retrieves the "Content-Type" header from the HTTP request headers.
 	 *
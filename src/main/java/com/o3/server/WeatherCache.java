@@ -0,0 +1,126 @@
+package com.o3.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class WeatherCache {
+
+	private final double gridSize;
+	private final long ttlMillis;
+	private final int maxEntries;
+	private final Map<String, Entry> entries;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	private record Entry(WeatherData data, long expiresAt) {
+	}
+
+	/**
+	 * Constructs a bounded weather cache keyed by coordinates snapped to a grid.
+	 *
+	 * @param gridSize   Size of a grid cell in degrees. Coordinates in the same cell share weather data.
+	 * @param ttlMillis  Time in milliseconds cached weather data stays fresh.
+	 * @param maxEntries Maximum number of cached grid cells, least recently used are evicted first.
+	 */
+	public WeatherCache(double gridSize, long ttlMillis, int maxEntries) {
+		this.gridSize = gridSize;
+		this.ttlMillis = ttlMillis;
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				if (size() > WeatherCache.this.maxEntries) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns fresh weather data of the grid cell containing the given coordinates.
+	 *
+	 * @param latitude  The latitude of the location.
+	 * @param longitude The longitude of the location.
+	 * @return The cached weather data, or null if there is no fresh data.
+	 */
+	public WeatherData get(String latitude, String longitude) {
+		String key = getKey(latitude, longitude);
+		synchronized (entries) {
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				if (entry.expiresAt() >= System.currentTimeMillis()) {
+					hits.incrementAndGet();
+					return entry.data();
+				}
+				entries.remove(key);
+				evictions.incrementAndGet();
+			}
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Returns fresh weather data of the grid cell containing the given coordinates like get,
+	 * without counting a hit or a miss. Used to check again after a miss that has already been counted.
+	 *
+	 * @param latitude  The latitude of the location.
+	 * @param longitude The longitude of the location.
+	 * @return The cached weather data, or null if there is no fresh data.
+	 */
+	public WeatherData peek(String latitude, String longitude) {
+		synchronized (entries) {
+			Entry entry = entries.get(getKey(latitude, longitude));
+			return entry != null && entry.expiresAt() >= System.currentTimeMillis() ? entry.data() : null;
+		}
+	}
+
+	/**
+	 * Stores weather data for the grid cell containing the given coordinates.
+	 *
+	 * @param latitude  The latitude of the location.
+	 * @param longitude The longitude of the location.
+	 * @param data      The weather data to store.
+	 */
+	public void put(String latitude, String longitude, WeatherData data) {
+		Entry entry = new Entry(data, System.currentTimeMillis() + ttlMillis);
+		synchronized (entries) {
+			entries.put(getKey(latitude, longitude), entry);
+		}
+	}
+
+	/**
+	 * Snaps the coordinates to the grid.
+	 *
+	 * @param latitude  The latitude of the location.
+	 * @param longitude The longitude of the location.
+	 * @return The key of the grid cell.
+	 */
+	public String getKey(String latitude, String longitude) {
+		long lat = Math.round(Double.parseDouble(latitude) / gridSize);
+		long lon = Math.round(Double.parseDouble(longitude) / gridSize);
+		return lat + "," + lon;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+}
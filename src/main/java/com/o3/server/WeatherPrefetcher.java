@@ -0,0 +1,90 @@
+package com.o3.server;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WeatherPrefetcher {
+
+	private static final long activeWindow = 86400000;	// 24 hours
+
+	private final MessageDataBase database;
+	private final WeatherService weatherService;
+	private final long interval;
+	private final long jitter;
+	private final ScheduledExecutorService scheduler;
+	private final ScheduledExecutorService fetchers;
+
+	/**
+	 * Constructor to initialize the WeatherPrefetcher.
+	 *
+	 * @param dbName      The name of the database file.
+	 * @param ws          The weather service whose cache is refreshed.
+	 * @param interval    Time between refresh rounds in milliseconds.
+	 * @param concurrency Maximum number of concurrent upstream fetches.
+	 * @param jitter      Maximum random delay in milliseconds added to each fetch of a round.
+	 */
+	public WeatherPrefetcher(String dbName, WeatherService ws, long interval, int concurrency, long jitter)
+		throws SQLException, IOException {
+		this.database = MessageDataBase.getInstance(dbName);
+		this.weatherService = ws;
+		this.interval = interval;
+		this.jitter = jitter;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> newThread(r, "weather-prefetch"));
+		AtomicInteger count = new AtomicInteger();
+		this.fetchers = Executors.newScheduledThreadPool(concurrency,
+			r -> newThread(r, "weather-prefetch-" + count.incrementAndGet()));
+	}
+
+	/**
+	 * Starts refreshing the weather cache periodically.
+	 */
+	public void start() {
+		scheduler.scheduleWithFixedDelay(this::refreshAll, 0, interval, TimeUnit.MILLISECONDS);
+	}
+
+	public void shutdown() {
+		scheduler.shutdownNow();
+		fetchers.shutdownNow();
+	}
+
+	/**
+	 * Schedules a weather refresh for every grid cell with recently active observatories.
+	 */
+	private void refreshAll() {
+		try {
+			List<Observatory> observatories = database.getActiveObservatories(System.currentTimeMillis() - activeWindow);
+			Set<String> cells = new HashSet<>();
+			for (Observatory observatory : observatories) {
+				String cell = weatherService.getCache().getKey(observatory.latitude(), observatory.longitude());
+				if (cells.add(cell)) {
+					long delay = jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter) : 0;
+					fetchers.schedule(() -> refresh(observatory), delay, TimeUnit.MILLISECONDS);
+				}
+			}
+		} catch (SQLException e) {
+			System.err.println("SQL error in weather prefetch: " + e.getMessage());
+		} catch (Exception e) {
+			System.err.println("Unhandled error in weather prefetch: " + e.getMessage());
+		}
+	}
+
+	private void refresh(Observatory observatory) {
+		if (!weatherService.refresh(observatory.latitude(), observatory.longitude())) {
+			System.err.println("Weather prefetch failed for observatory: " + observatory.name());
+		}
+	}
+
+	private static Thread newThread(Runnable r, String name) {
+		Thread thread = new Thread(r, name);
+		thread.setDaemon(true);
+		return thread;
+	}
+}
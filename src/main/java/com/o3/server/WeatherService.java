@@ -1,70 +1,160 @@
 package com.o3.server;
 
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 public class WeatherService {
 
+	private static final double cacheGridSize = Double.parseDouble(System.getProperty("weather.gridSize", "0.01"));
+	private static final long cacheTtl = Long.getLong("weather.cacheTtl", 600000);	// 10 minutes, upstream update interval
+	private static final int cacheSize = Integer.getInteger("weather.cacheSize", 1024);
+
 	private final HttpClient client;
+	private final WeatherCache cache;
+	private final Map<String, CompletableFuture<WeatherData>> inFlight = new ConcurrentHashMap<>();
+	private final AtomicLong coalesced = new AtomicLong();
+	private final LatencyHistogram fetchLatency = new LatencyHistogram();
+	private final LongAdder fetchErrors = new LongAdder();
 
 	public WeatherService() {
 		client = HttpClient.newHttpClient();
+		cache = new WeatherCache(cacheGridSize, cacheTtl, cacheSize);
 	}
 
 	/**
 	 * Retrieves weather data for a given latitude and longitude.
+	 * Fresh data of the same grid cell is served from the weather cache. Concurrent callers for the
+	 * same grid cell share a single upstream fetch and its result, including a failure.
 	 *
 	 * @param latitude  The latitude of the location.
 	 * @param longitude The longitude of the location.
 	 * @return A WeatherData object containing the weather information, or null if an error occurs.
 	 */
 	public WeatherData getData(String latitude, String longitude) {
+		WeatherData data = cache.get(latitude, longitude);
+		if (data != null) {
+			return data;
+		}
+		return load(latitude, longitude, false);
+	}
+
+	/**
+	 * Fetches weather data for a given latitude and longitude and stores it in the weather cache,
+	 * replacing data that may still be fresh. A fetch of the same grid cell already in flight is shared.
+	 *
+	 * @param latitude  The latitude of the location.
+	 * @param longitude The longitude of the location.
+	 * @return True if the cache was refreshed, false if fetching failed.
+	 */
+	public boolean refresh(String latitude, String longitude) {
+		return load(latitude, longitude, true) != null;
+	}
+
+	/**
+	 * Fetches weather data through the single-flight map, so requests and prefetches of the same grid cell
+	 * share one upstream fetch.
+	 *
+	 * @param latitude  The latitude of the location.
+	 * @param longitude The longitude of the location.
+	 * @param refresh   Fetches even if the cache has fresh data.
+	 * @return A WeatherData object containing the weather information, or null if an error occurs.
+	 */
+	private WeatherData load(String latitude, String longitude, boolean refresh) {
+		String key = cache.getKey(latitude, longitude);
+		CompletableFuture<WeatherData> future = new CompletableFuture<>();
+		CompletableFuture<WeatherData> pending = inFlight.putIfAbsent(key, future);
+		if (pending != null) {
+			coalesced.incrementAndGet();
+			try {
+				return pending.join();
+			} catch (Exception e) {
+				System.err.println("Weather service error: " + e.getMessage());
+				return null;
+			}
+		}
+
+		try {
+			// A fetch finishing between the cache miss and putIfAbsent has already stored its result
+			WeatherData data = refresh ? null : cache.peek(latitude, longitude);
+			if (data == null) {
+				data = fetchData(latitude, longitude);
+				if (data != null) {
+					cache.put(latitude, longitude, data);
+				}
+			}
+			future.complete(data);
+			return data;
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, future);
+		}
+	}
+
+	public WeatherCache getCache() {
+		return cache;
+	}
+
+	public long getCoalescedCount() {
+		return coalesced.get();
+	}
+
+	public LatencyHistogram getFetchLatency() {
+		return fetchLatency;
+	}
+
+	public long getFetchErrorCount() {
+		return fetchErrors.sum();
+	}
+
+	/**
+	 * Fetches weather data for a given latitude and longitude from the weather service.
+	 *
+	 * @param latitude  The latitude of the location.
+	 * @param longitude The longitude of the location.
+	 * @return A WeatherData object containing the weather information, or null if an error occurs.
+	 */
+	private WeatherData fetchData(String latitude, String longitude) {
 		String targetURL = "http://localhost:4001/wfs?latlon=" + latitude + "," + longitude +
 			"&parameters=Temperature,Pressure,Humidity,TotalCloudCover,RadiationGlobalAccumulation";
+		long start = System.nanoTime();
+		WeatherData data = null;
 		try {
 			HttpRequest request = HttpRequest.newBuilder()
 				.uri(URI.create(targetURL))
 				.GET()
 				.build();
-			HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-			if (response.statusCode() != 200) {
-				System.err.println("Response status code [" + response.statusCode() + "]");
-				return null;
-			}
+			HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+			try (InputStream body = response.body()) {
+				if (response.statusCode() != 200) {
+					System.err.println("Response status code [" + response.statusCode() + "]");
+					return null;
+				}
 
-			String[] data = lazyParseXML(response.body());
-			if (data[0] != null) {
-				String temp = celsiusToKelvin(data[0]);
-				return new WeatherData(temp, data[1], data[2], data[3], data[4]);
+				// Parse the response as it streams in
+				String[] values = WeatherXMLParser.parse(body);
+				if (values[0] != null) {
+					String temp = celsiusToKelvin(values[0]);
+					data = new WeatherData(temp, values[1], values[2], values[3], values[4]);
+				}
 			}
 
 		} catch (Exception e) {
 			System.err.println("Weather service error: " + e.getMessage());
-		}
-		return null;
-	}
-
-	/**
-	 * Parses an XML string to extract weather parameter values.
-	 * This method uses a simple regex-based approach to extract values from the XML.
-	 *
-	 * @param xmlString The XML string to parse.
-	 * @return An array of weather parameter values (temperature, pressure, humidity, cloud cover, radiation).
-	 */
-	private String[] lazyParseXML(String xmlString) {
-		String[] data = new String[5];
-		Pattern pattern = Pattern.compile("<BsWfs:ParameterValue>(.*?)</BsWfs:ParameterValue>");
-		Matcher matcher = pattern.matcher(xmlString);
-		int i = 0;
-		while (matcher.find()) {
-			if ((matcher.group(1) == null) || i > 4) {
-				break;
+		} finally {
+			fetchLatency.record(System.nanoTime() - start);
+			if (data == null) {
+				fetchErrors.increment();
 			}
-			data[i++] = matcher.group(1);
 		}
 		return data;
 	}
@@ -0,0 +1,85 @@
+package com.o3.server;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+
+public class WeatherXMLParser {
+
+	// Requested parameters in the order of the returned array.
+	public static final String[] PARAMETERS = {
+		"Temperature", "Pressure", "Humidity", "TotalCloudCover", "RadiationGlobalAccumulation"
+	};
+
+	private static final XMLInputFactory factory = createFactory();
+
+	private WeatherXMLParser() {
+	}
+
+	/**
+	 * Parses a WFS simple feature response and extracts the first value of each requested parameter.
+	 * Values are mapped by their ParameterName, and parsing stops as soon as every parameter is found.
+	 *
+	 * @param input The XML response stream.
+	 * @return An array of weather parameter values (temperature, pressure, humidity, cloud cover, radiation).
+	 *         Parameters missing from the response are null.
+	 * @throws XMLStreamException If the response is not valid XML.
+	 */
+	public static String[] parse(InputStream input) throws XMLStreamException {
+		String[] data = new String[PARAMETERS.length];
+		int found = 0;
+		XMLStreamReader reader = factory.createXMLStreamReader(input);
+		try {
+			int index = -1;
+			while (found < PARAMETERS.length && reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				switch (reader.getLocalName()) {
+					case "BsWfsElement":
+						index = -1;
+						break;
+					case "ParameterName":
+						index = indexOf(reader.getElementText().trim());
+						break;
+					case "ParameterValue":
+						String value = reader.getElementText().trim();
+						if (index >= 0 && data[index] == null) {
+							data[index] = value;
+							found++;
+						}
+						break;
+					default:
+						break;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return data;
+	}
+
+	/**
+	 * Finds the position of a parameter in the returned array.
+	 *
+	 * @param name The parameter name.
+	 * @return The index of the parameter, or -1 if it was not requested.
+	 */
+	private static int indexOf(String name) {
+		for (int i = 0; i < PARAMETERS.length; i++) {
+			if (PARAMETERS[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static XMLInputFactory createFactory() {
+		XMLInputFactory xmlInputFactory = XMLInputFactory.newFactory();
+		xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return xmlInputFactory;
+	}
+}
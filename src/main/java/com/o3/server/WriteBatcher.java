@@ -0,0 +1,178 @@
+package com.o3.server;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class WriteBatcher {
+
+	/**
+	 * A database write executed on the connection of a batch transaction.
+	 *
+	 * @param <T> The type of the write result.
+	 */
+	@FunctionalInterface
+	public interface Write<T> {
+		T execute(Connection conn) throws SQLException;
+	}
+
+	private record PendingWrite<T>(Write<T> write, CompletableFuture<T> future) {
+	}
+
+	private final DataSource dataSource;
+	private final int maxBatchSize;
+	private final long maxDelayNanos;
+	private final BlockingQueue<PendingWrite<?>> queue = new LinkedBlockingQueue<>();
+	private final Thread writer;
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicLong writes = new AtomicLong();
+
+	/**
+	 * Constructs a write batcher committing writes of many callers in a single transaction.
+	 *
+	 * @param dataSource   The data source providing the writer connection.
+	 * @param maxBatchSize Maximum number of writes committed together.
+	 * @param maxDelay     Maximum time in microseconds the writer waits for more writes before committing.
+	 */
+	public WriteBatcher(DataSource dataSource, int maxBatchSize, long maxDelay) {
+		this.dataSource = dataSource;
+		this.maxBatchSize = maxBatchSize;
+		this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelay);
+		this.writer = new Thread(this::run, "database-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Queues a write and waits until the transaction containing it has been committed.
+	 *
+	 * @param write The write to execute.
+	 * @return The result of the write.
+	 * @throws SQLException If the write or the commit fails, or the writer thread has stopped.
+	 */
+	public <T> T execute(Write<T> write) throws SQLException {
+		if (!writer.isAlive()) {
+			throw new SQLException("Database writer has stopped!");
+		}
+		CompletableFuture<T> future = new CompletableFuture<>();
+		queue.add(new PendingWrite<>(write, future));
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for database write!", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof SQLException sqlException) {
+				throw sqlException;
+			}
+			throw new SQLException("Database write failed!", e.getCause());
+		}
+	}
+
+	public long getBatchCount() {
+		return batches.get();
+	}
+
+	public long getWriteCount() {
+		return writes.get();
+	}
+
+	/**
+	 * Collects writes until the batch is full or the delay has passed, then commits them. An unexpected error
+	 * fails only the writes of its batch, so the single writer thread keeps serving later writes.
+	 */
+	private void run() {
+		List<PendingWrite<?>> batch = new ArrayList<>(maxBatchSize);
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				batch.add(queue.take());
+				long deadline = System.nanoTime() + maxDelayNanos;
+				while (batch.size() < maxBatchSize) {
+					PendingWrite<?> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+				commit(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (Throwable t) {
+				System.err.println("Unexpected error in committing write batch: " + t);
+				for (PendingWrite<?> pending : batch) {
+					pending.future().completeExceptionally(t);
+				}
+			} finally {
+				batch.clear();
+			}
+		}
+		// Writes queued before the thread stopped would otherwise wait forever
+		queue.drainTo(batch);
+		for (PendingWrite<?> pending : batch) {
+			pending.future().completeExceptionally(new SQLException("Database writer has stopped!"));
+		}
+	}
+
+	/**
+	 * Executes a batch of writes in one transaction. Each write runs inside its own savepoint, so a failing
+	 * write is rolled back alone and only its caller receives the error.
+	 *
+	 * @param batch The writes to commit.
+	 */
+	private void commit(List<PendingWrite<?>> batch) {
+		List<Runnable> completions = new ArrayList<>(batch.size());
+		try (Connection conn = dataSource.getConnection()) {
+			conn.setAutoCommit(false);
+			try {
+				for (PendingWrite<?> pending : batch) {
+					completions.add(executeWrite(conn, pending));
+				}
+				conn.commit();
+			} catch (Throwable t) {
+				// Roll back before auto-commit is restored, which would commit the writes done so far
+				conn.rollback();
+				throw t;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+		} catch (SQLException e) {
+			System.err.println("SQL error in committing write batch: " + e.getMessage());
+			for (PendingWrite<?> pending : batch) {
+				pending.future().completeExceptionally(e);
+			}
+			return;
+		}
+		batches.incrementAndGet();
+		writes.addAndGet(batch.size());
+		completions.forEach(Runnable::run);
+	}
+
+	/**
+	 * Executes a single write inside a savepoint.
+	 *
+	 * @param conn    The connection of the batch transaction.
+	 * @param pending The write to execute.
+	 * @return An action completing the caller's future once the batch is committed.
+	 */
+	private <T> Runnable executeWrite(Connection conn, PendingWrite<T> pending) throws SQLException {
+		Savepoint savepoint = conn.setSavepoint();
+		try {
+			T result = pending.write().execute(conn);
+			conn.releaseSavepoint(savepoint);
+			return () -> pending.future().complete(result);
+		} catch (SQLException | RuntimeException e) {
+			conn.rollback(savepoint);
+			conn.releaseSavepoint(savepoint);
+			return () -> pending.future().completeExceptionally(e);
+		}
+	}
+}
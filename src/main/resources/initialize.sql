@@ -41,3 +41,22 @@ CREATE TABLE IF NOT EXISTS weather (
 );
 
 CREATE INDEX IF NOT EXISTS idx_records_owner ON records (owner_id);
+
+CREATE TABLE IF NOT EXISTS enrichment_jobs (
+	record_id INTEGER PRIMARY KEY,
+	status TEXT NOT NULL,
+	attempts INTEGER NOT NULL DEFAULT 0,
+	created INTEGER NOT NULL,
+	FOREIGN KEY (record_id) REFERENCES records(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_enrichment_status ON enrichment_jobs (status, created);
+
+CREATE TABLE IF NOT EXISTS summary_cache (
+	input_hash TEXT NOT NULL,
+	model TEXT NOT NULL,
+	summary TEXT NOT NULL,
+	generation_time INTEGER NOT NULL,
+	created INTEGER NOT NULL,
+	PRIMARY KEY (input_hash, model)
+);
@@ -0,0 +1,13 @@
+-- Default listing and keyset pagination, "before" and "after" searches
+CREATE INDEX IF NOT EXISTS idx_records_time ON records (time_received, id);
+
+-- "identification" searches
+CREATE INDEX IF NOT EXISTS idx_records_identifier_time ON records (identifier, time_received, id);
+
+-- "nickname" searches
+CREATE INDEX IF NOT EXISTS idx_users_nickname ON users (nickname);
+CREATE INDEX IF NOT EXISTS idx_records_owner_time ON records (owner_id, time_received, id);
+
+-- Foreign keys of the observatory and weather joins
+CREATE INDEX IF NOT EXISTS idx_records_observatory ON records (observatory_id);
+CREATE INDEX IF NOT EXISTS idx_observatories_weather ON observatories (weather_id);
@@ -0,0 +1,28 @@
+-- Full-text index of record descriptions and payloads for "text" searches.
+-- The index reads its content from the records table, so only the tokens are stored twice.
+CREATE VIRTUAL TABLE IF NOT EXISTS records_fts USING fts5(
+	description,
+	payload,
+	content = 'records',
+	content_rowid = 'id',
+	tokenize = 'unicode61 remove_diacritics 2'
+);
+
+-- Keep the index in sync with the records table
+CREATE TRIGGER IF NOT EXISTS records_fts_insert AFTER INSERT ON records BEGIN
+	INSERT INTO records_fts (rowid, description, payload) VALUES (new.id, new.description, new.payload);
+END;
+
+CREATE TRIGGER IF NOT EXISTS records_fts_delete AFTER DELETE ON records BEGIN
+	INSERT INTO records_fts (records_fts, rowid, description, payload)
+		VALUES ('delete', old.id, old.description, old.payload);
+END;
+
+CREATE TRIGGER IF NOT EXISTS records_fts_update AFTER UPDATE OF description, payload ON records BEGIN
+	INSERT INTO records_fts (records_fts, rowid, description, payload)
+		VALUES ('delete', old.id, old.description, old.payload);
+	INSERT INTO records_fts (rowid, description, payload) VALUES (new.id, new.description, new.payload);
+END;
+
+-- Backfill the index from the existing records
+INSERT INTO records_fts (records_fts) VALUES ('rebuild');
@@ -0,0 +1,30 @@
+-- R-tree index of observatory coordinates for "latitude"/"longitude"/"radius" and "bbox" searches.
+-- Coordinates are stored as points, with equal minimum and maximum.
+CREATE VIRTUAL TABLE IF NOT EXISTS observatories_rtree USING rtree(
+	id,
+	min_lat, max_lat,
+	min_lon, max_lon
+);
+
+-- Keep the index in sync with the observatories table
+CREATE TRIGGER IF NOT EXISTS observatories_rtree_insert AFTER INSERT ON observatories BEGIN
+	INSERT INTO observatories_rtree (id, min_lat, max_lat, min_lon, max_lon)
+		VALUES (new.id, CAST(new.latitude AS REAL), CAST(new.latitude AS REAL),
+			CAST(new.longitude AS REAL), CAST(new.longitude AS REAL));
+END;
+
+CREATE TRIGGER IF NOT EXISTS observatories_rtree_update AFTER UPDATE OF latitude, longitude ON observatories BEGIN
+	UPDATE observatories_rtree
+		SET min_lat = CAST(new.latitude AS REAL), max_lat = CAST(new.latitude AS REAL),
+			min_lon = CAST(new.longitude AS REAL), max_lon = CAST(new.longitude AS REAL)
+		WHERE id = new.id;
+END;
+
+CREATE TRIGGER IF NOT EXISTS observatories_rtree_delete AFTER DELETE ON observatories BEGIN
+	DELETE FROM observatories_rtree WHERE id = old.id;
+END;
+
+-- Backfill the index from the existing observatories
+INSERT INTO observatories_rtree (id, min_lat, max_lat, min_lon, max_lon)
+	SELECT id, CAST(latitude AS REAL), CAST(latitude AS REAL), CAST(longitude AS REAL), CAST(longitude AS REAL)
+	FROM observatories;
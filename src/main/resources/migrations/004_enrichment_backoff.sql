@@ -0,0 +1,5 @@
+-- Failed AI description attempts are retried with a backoff instead of immediately
+ALTER TABLE enrichment_jobs ADD COLUMN next_attempt INTEGER NOT NULL DEFAULT 0;
+
+-- Due pending jobs of the description worker
+CREATE INDEX IF NOT EXISTS idx_enrichment_due ON enrichment_jobs (status, next_attempt);
@@ -0,0 +1,155 @@
+package com.o3.server;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.HttpURLConnection;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkObservationHandlerTest {
+
+	private static TestServer startServer() throws Exception {
+		return new TestServer("/bulk", new BulkObservationHandler(TestDatabase.getFile(), new WeatherService(), null),
+			true);
+	}
+
+	/**
+	 * Creates a record with a description, so no AI description is requested.
+	 */
+	private static JSONObject record(String identifier) {
+		return new JSONObject()
+			.put("recordIdentifier", identifier)
+			.put("recordDescription", "Description of " + identifier)
+			.put("recordPayload", "payload")
+			.put("recordRightAscension", "12h 30m")
+			.put("recordDeclination", "-2d 10m");
+	}
+
+	private static HttpResponse<String> post(TestServer server, String username, String contentType, String body)
+		throws Exception {
+		return server.sendForString(server.request(username, null)
+			.header("Content-Type", contentType)
+			.POST(HttpRequest.BodyPublishers.ofString(body))
+			.build());
+	}
+
+	/**
+	 * Reads the result lines of an upload. Errors of invalid records are written before the results of the
+	 * batch they were read with, so the results are sorted by request line.
+	 */
+	private static List<JSONObject> readResults(HttpResponse<String> response) {
+		List<JSONObject> results = new ArrayList<>();
+		for (String line : response.body().split("\n")) {
+			results.add(new JSONObject(line));
+		}
+		results.sort(Comparator.comparingInt(result -> result.getInt("line")));
+		return results;
+	}
+
+	@Test
+	@DisplayName("NDJSON upload inserts valid lines and reports invalid lines")
+	void uploadsNdjson() throws Exception {
+		String user = TestDatabase.createUser("bulk");
+		String body = record("first") + "\n{not json\n\n" + record("second") + "\n"
+			+ new JSONObject().put("recordIdentifier", "missing fields") + "\n";
+
+		try (TestServer server = startServer()) {
+			HttpResponse<String> response = post(server, user, BulkObservationHandler.NDJSON_CONTENT_TYPE, body);
+
+			assertEquals(HttpURLConnection.HTTP_OK, response.statusCode());
+			assertEquals(BulkObservationHandler.NDJSON_CONTENT_TYPE,
+				response.headers().firstValue("Content-Type").orElse(null));
+			List<String> lines = new ArrayList<>();
+			for (JSONObject result : readResults(response)) {
+				lines.add(result.getInt("line") + ":" + result.getString("status"));
+			}
+			assertEquals(List.of("1:OK", "2:ERROR", "4:OK", "5:ERROR"), lines);
+		}
+		assertEquals(List.of("first", "second"), TestDatabase.search(Map.of("nickname", user)).identifiers());
+	}
+
+	@Test
+	@DisplayName("JSON array upload reports each element by its position")
+	void uploadsArray() throws Exception {
+		String user = TestDatabase.createUser("bulk");
+		JSONArray body = new JSONArray().put(record("first")).put("not an object").put(record("second"));
+
+		try (TestServer server = startServer()) {
+			HttpResponse<String> response = post(server, user, "application/json", body.toString());
+
+			assertEquals(HttpURLConnection.HTTP_OK, response.statusCode());
+			List<JSONObject> results = readResults(response);
+			assertEquals(3, results.size());
+			assertEquals("OK", results.get(0).getString("status"));
+			assertEquals(2, results.get(1).getInt("line"));
+			assertEquals("ERROR", results.get(1).getString("status"));
+			assertEquals("OK", results.get(2).getString("status"));
+			assertTrue(results.get(0).getInt("id") < results.get(2).getInt("id"));
+		}
+		assertEquals(List.of("first", "second"), TestDatabase.search(Map.of("nickname", user)).identifiers());
+	}
+
+	@Test
+	@DisplayName("Syntax error in a JSON array ends the upload after the records read so far")
+	void stopsAtArraySyntaxError() throws Exception {
+		String user = TestDatabase.createUser("bulk");
+
+		try (TestServer server = startServer()) {
+			HttpResponse<String> response = post(server, user, "application/json", "[" + record("first") + ", {");
+
+			List<JSONObject> results = readResults(response);
+			assertEquals(2, results.size());
+			assertEquals("OK", results.get(0).getString("status"));
+			assertEquals(2, results.get(1).getInt("line"));
+			assertEquals("ERROR", results.get(1).getString("status"));
+		}
+		assertEquals(List.of("first"), TestDatabase.search(Map.of("nickname", user)).identifiers());
+	}
+
+	@Test
+	@DisplayName("Upload of only invalid records gets an error for every line")
+	void reportsAllInvalid() throws Exception {
+		String user = TestDatabase.createUser("bulk");
+
+		try (TestServer server = startServer()) {
+			HttpResponse<String> response = post(server, user, BulkObservationHandler.NDJSON_CONTENT_TYPE,
+				"[1]\n{}\n");
+
+			assertEquals(HttpURLConnection.HTTP_OK, response.statusCode());
+			List<JSONObject> results = readResults(response);
+			assertEquals(2, results.size());
+			for (JSONObject result : results) {
+				assertEquals("ERROR", result.getString("status"));
+			}
+		}
+		assertEquals(List.of(), TestDatabase.search(Map.of("nickname", user)).identifiers());
+	}
+
+	@Test
+	@DisplayName("Empty body, wrong content type and missing credentials are rejected")
+	void rejectsInvalidRequests() throws Exception {
+		String user = TestDatabase.createUser("bulk");
+
+		try (TestServer server = startServer()) {
+			assertEquals(HttpURLConnection.HTTP_BAD_REQUEST,
+				post(server, user, BulkObservationHandler.NDJSON_CONTENT_TYPE, "\n\n").statusCode());
+			assertEquals(HttpURLConnection.HTTP_BAD_REQUEST,
+				post(server, user, "text/plain", record("first").toString()).statusCode());
+			assertEquals(HttpURLConnection.HTTP_UNAUTHORIZED, server.sendForString(server.request(null)
+				.header("Content-Type", BulkObservationHandler.NDJSON_CONTENT_TYPE)
+				.POST(HttpRequest.BodyPublishers.ofString(record("first").toString()))
+				.build()).statusCode());
+		}
+		assertEquals(List.of(), TestDatabase.search(Map.of("nickname", user)).identifiers());
+	}
+}
@@ -0,0 +1,142 @@
+package com.o3.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressionTest {
+
+	private static final String ENCODING_HEADER = "X-Negotiated-Encoding";
+
+	/**
+	 * Answers with a body of the requested size, compressed with the negotiated coding. The negotiated coding is
+	 * echoed in a header if there is one. With "abort", the response is aborted after the body has been written.
+	 */
+	private static void handle(HttpExchange exchange) throws IOException {
+		Map<String, String> args = Util.parseQueryArgs(exchange.getRequestURI().getQuery(), Set.of("size", "abort"));
+		String encoding = ChunkedResponseStream.negotiateEncoding(exchange);
+		if (encoding != null) {
+			exchange.getResponseHeaders().set(ENCODING_HEADER, encoding);
+		}
+		ChunkedResponseStream body = new ChunkedResponseStream(exchange, HttpURLConnection.HTTP_OK, encoding);
+		body.write(createBody(Integer.parseInt(args.getOrDefault("size", "0"))));
+		if (args.containsKey("abort")) {
+			if (body.abort()) {
+				Util.sendResponse(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR);
+			}
+			return;
+		}
+		body.close();
+	}
+
+	private static byte[] createBody(int size) {
+		StringBuilder body = new StringBuilder(size);
+		for (int i = 0; body.length() < size; i++) {
+			body.append("{\"recordIdentifier\":\"record").append(i).append("\"},");
+		}
+		body.setLength(size);
+		return body.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static HttpResponse<byte[]> get(TestServer server, String query, String acceptEncoding) throws Exception {
+		HttpRequest.Builder request = server.request(query).GET();
+		if (acceptEncoding != null) {
+			request.header("Accept-Encoding", acceptEncoding);
+		}
+		return server.send(request.build());
+	}
+
+	private static String negotiate(TestServer server, String acceptEncoding) throws Exception {
+		return get(server, "size=1", acceptEncoding).headers().firstValue(ENCODING_HEADER).orElse(null);
+	}
+
+	@Test
+	@DisplayName("Coding is chosen by the q-values of Accept-Encoding")
+	void negotiatesQValues() throws Exception {
+		try (TestServer server = new TestServer("/compression", CompressionTest::handle, false)) {
+			assertNull(negotiate(server, null));
+			assertNull(negotiate(server, "identity"));
+			assertEquals("gzip", negotiate(server, "deflate, gzip"));
+			assertEquals("gzip", negotiate(server, "x-gzip"));
+			assertEquals("gzip", negotiate(server, "*"));
+			assertEquals("deflate", negotiate(server, "gzip;q=0, deflate;q=0.5"));
+			assertEquals("deflate", negotiate(server, "gzip; q=0.0, *"));
+			assertEquals("deflate", negotiate(server, "deflate, *;q=0"));
+			assertNull(negotiate(server, "gzip;q=0, deflate;q=0, *"));
+			assertNull(negotiate(server, "gzip;q=invalid"));
+		}
+	}
+
+	@Test
+	@DisplayName("Large body is compressed and decompresses to the original")
+	void compressesLargeBody() throws Exception {
+		try (TestServer server = new TestServer("/compression", CompressionTest::handle, false)) {
+			byte[] expected = createBody(64 * 1024);
+			for (String encoding : new String[]{"gzip", "deflate"}) {
+				HttpResponse<byte[]> response = get(server, "size=" + expected.length, encoding);
+
+				assertEquals(encoding, response.headers().firstValue("Content-Encoding").orElse(null));
+				assertEquals("Accept-Encoding", response.headers().firstValue("Vary").orElse(null));
+				assertTrue(response.body().length < expected.length);
+				InputStream compressed = new ByteArrayInputStream(response.body());
+				try (InputStream input = encoding.equals("gzip")
+					? new GZIPInputStream(compressed) : new InflaterInputStream(compressed)) {
+					assertArrayEquals(expected, input.readAllBytes());
+				}
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("Body below the threshold is sent uncompressed with a fixed length")
+	void sendsSmallBodyUncompressed() throws Exception {
+		try (TestServer server = new TestServer("/compression", CompressionTest::handle, false)) {
+			HttpResponse<byte[]> response = get(server, "size=100", "gzip");
+
+			assertFalse(response.headers().firstValue("Content-Encoding").isPresent());
+			assertEquals("100", response.headers().firstValue("Content-Length").orElse(null));
+			assertArrayEquals(createBody(100), response.body());
+		}
+	}
+
+	@Test
+	@DisplayName("Abort before the headers are sent allows an error response")
+	void abortsBeforeCommit() throws Exception {
+		try (TestServer server = new TestServer("/compression", CompressionTest::handle, false)) {
+			HttpResponse<byte[]> response = get(server, "size=100&abort=true", "gzip");
+
+			assertEquals(HttpURLConnection.HTTP_INTERNAL_ERROR, response.statusCode());
+		}
+	}
+
+	@Test
+	@DisplayName("Abort after the headers are sent leaves the response incomplete")
+	void abortsAfterCommit() throws Exception {
+		try (TestServer server = new TestServer("/compression", CompressionTest::handle, false)) {
+			for (String encoding : new String[]{"gzip", "identity"}) {
+				assertThrows(IOException.class, () -> get(server, "size=" + 64 * 1024 + "&abort=true", encoding));
+			}
+			// The server keeps serving other requests
+			assertEquals(HttpURLConnection.HTTP_OK, get(server, "size=100", null).statusCode());
+		}
+	}
+}
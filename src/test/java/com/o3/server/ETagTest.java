@@ -0,0 +1,113 @@
+package com.o3.server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.HttpURLConnection;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ETagTest {
+
+	private static TestServer startServer() throws Exception {
+		return new TestServer("/search", new SearchHandler(TestDatabase.getFile()), true);
+	}
+
+	private static HttpRequest.Builder search(TestServer server, String user) {
+		return server.request(user, "nickname=" + user).header("Content-Type", "application/json").GET();
+	}
+
+	private static String getETag(HttpResponse<?> response) {
+		return response.headers().firstValue("ETag").orElse(null);
+	}
+
+	@Test
+	@DisplayName("Unchanged search is answered with 304 and the same tag")
+	void answersNotModified() throws Exception {
+		String user = TestDatabase.createUser("etag");
+		TestDatabase.insert(user, "record", "payload");
+
+		try (TestServer server = startServer()) {
+			HttpResponse<byte[]> first = server.send(search(server, user).build());
+			String etag = getETag(first);
+
+			assertEquals(HttpURLConnection.HTTP_OK, first.statusCode());
+			assertTrue(etag != null && etag.startsWith("\""));
+			assertEquals("no-cache", first.headers().firstValue("Cache-Control").orElse(null));
+
+			HttpResponse<byte[]> second = server.send(search(server, user).header("If-None-Match", etag).build());
+
+			assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, second.statusCode());
+			assertEquals(etag, getETag(second));
+			assertEquals(0, second.body().length);
+		}
+	}
+
+	@Test
+	@DisplayName("Weak and listed tags match, other tags get the full page")
+	void matchesTagLists() throws Exception {
+		String user = TestDatabase.createUser("etag");
+		TestDatabase.insert(user, "record", "payload");
+
+		try (TestServer server = startServer()) {
+			String etag = getETag(server.send(search(server, user).build()));
+
+			assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, server.send(search(server, user)
+				.header("If-None-Match", "\"other\", W/" + etag).build()).statusCode());
+			assertEquals(HttpURLConnection.HTTP_OK, server.send(search(server, user)
+				.header("If-None-Match", "\"other\"").build()).statusCode());
+		}
+	}
+
+	@Test
+	@DisplayName("Insert changes the tag of a search")
+	void changesAfterInsert() throws Exception {
+		String user = TestDatabase.createUser("etag");
+		TestDatabase.insert(user, "record0", "payload");
+
+		try (TestServer server = startServer()) {
+			String etag = getETag(server.send(search(server, user).build()));
+			TestDatabase.insert(user, "record1", "payload");
+
+			HttpResponse<String> response = server.sendForString(search(server, user)
+				.header("If-None-Match", etag).build());
+
+			assertEquals(HttpURLConnection.HTTP_OK, response.statusCode());
+			assertNotEquals(etag, getETag(response));
+			assertTrue(response.body().contains("record1"));
+		}
+	}
+
+	@Test
+	@DisplayName("Compressed and uncompressed pages have different tags")
+	void tagsEncoding() throws Exception {
+		String user = TestDatabase.createUser("etag");
+		TestDatabase.insert(user, "record", "payload");
+
+		try (TestServer server = startServer()) {
+			String identity = getETag(server.send(search(server, user).build()));
+			String gzip = getETag(server.send(search(server, user).header("Accept-Encoding", "gzip").build()));
+
+			assertNotEquals(identity, gzip);
+		}
+	}
+
+	@Test
+	@DisplayName("Error response has no tag")
+	void omitsTagOnError() throws Exception {
+		String user = TestDatabase.createUser("etag");
+
+		try (TestServer server = startServer()) {
+			HttpResponse<byte[]> response = server.send(server.request(user, "nickname=" + user + "&cursor=invalid")
+				.header("Content-Type", "application/json").GET().build());
+
+			assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, response.statusCode());
+			assertFalse(response.headers().firstValue("ETag").isPresent());
+		}
+	}
+}
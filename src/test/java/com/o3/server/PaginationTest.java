@@ -0,0 +1,107 @@
+package com.o3.server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaginationTest {
+
+	/**
+	 * Follows the cursors of a search from the first page to the last.
+	 *
+	 * @return The pages in order.
+	 */
+	private static List<TestDatabase.Page> readAll(Map<String, String> searchArgs) throws SQLException, IOException {
+		List<TestDatabase.Page> pages = new ArrayList<>();
+		Map<String, String> args = new HashMap<>(searchArgs);
+		do {
+			TestDatabase.Page page = TestDatabase.search(args);
+			pages.add(page);
+			args.put("cursor", page.nextCursor());
+		} while (pages.get(pages.size() - 1).nextCursor() != null && pages.size() < 100);
+		return pages;
+	}
+
+	@Test
+	@DisplayName("Cursors visit every record once in time order")
+	void pagesCoverAllRecords() throws Exception {
+		String user = TestDatabase.createUser("paging");
+		for (int i = 0; i < 5; i++) {
+			TestDatabase.insert(user, "record" + i, "payload");
+		}
+
+		List<TestDatabase.Page> pages = readAll(Map.of("nickname", user, "limit", "2"));
+
+		assertEquals(3, pages.size());
+		assertEquals(List.of("record0", "record1"), pages.get(0).identifiers());
+		assertEquals(List.of("record2", "record3"), pages.get(1).identifiers());
+		assertEquals(List.of("record4"), pages.get(2).identifiers());
+		assertNull(pages.get(2).nextCursor());
+	}
+
+	@Test
+	@DisplayName("A full last page has no cursor")
+	void fullLastPageEndsPaging() throws Exception {
+		String user = TestDatabase.createUser("paging");
+		for (int i = 0; i < 4; i++) {
+			TestDatabase.insert(user, "record" + i, "payload");
+		}
+
+		List<TestDatabase.Page> pages = readAll(Map.of("nickname", user, "limit", "2"));
+
+		assertEquals(2, pages.size());
+		assertNotNull(pages.get(0).nextCursor());
+		assertNull(pages.get(1).nextCursor());
+	}
+
+	@Test
+	@DisplayName("Records added after a cursor was issued are not skipped or repeated")
+	void cursorSurvivesInserts() throws Exception {
+		String user = TestDatabase.createUser("paging");
+		for (int i = 0; i < 3; i++) {
+			TestDatabase.insert(user, "record" + i, "payload");
+		}
+		TestDatabase.Page first = TestDatabase.search(Map.of("nickname", user, "limit", "2"));
+		TestDatabase.insert(user, "record3", "payload");
+
+		List<String> rest = new ArrayList<>();
+		for (TestDatabase.Page page : readAll(Map.of("nickname", user, "limit", "2", "cursor", first.nextCursor()))) {
+			rest.addAll(page.identifiers());
+		}
+
+		assertEquals(List.of("record0", "record1"), first.identifiers());
+		assertEquals(List.of("record2", "record3"), rest);
+	}
+
+	@Test
+	@DisplayName("Cursor identifies the row it was created from")
+	void cursorRoundTrip() {
+		String cursor = SearchQuery.encodeCursor(1735689600000L, 42);
+		SearchQuery query = new SearchQuery(Map.of("cursor", cursor, "limit", "10"));
+
+		assertTrue(query.getKey().endsWith(";limit=10;cursor=1735689600000:42"));
+		assertEquals(cursor, query.getNextCursor(1735689600000L, 42));
+	}
+
+	@Test
+	@DisplayName("Invalid cursors and page sizes are rejected")
+	void rejectsInvalidArguments() {
+		assertThrows(IllegalArgumentException.class, () -> new SearchQuery(Map.of("cursor", "not a cursor")));
+		assertThrows(IllegalArgumentException.class, () -> new SearchQuery(Map.of("limit", "0")));
+		assertThrows(IllegalArgumentException.class, () -> new SearchQuery(Map.of("limit", "ten")));
+		assertEquals(SearchQuery.MAX_PAGE_SIZE,
+			new SearchQuery(Map.of("limit", String.valueOf(SearchQuery.MAX_PAGE_SIZE + 1))).getLimit());
+	}
+}
@@ -0,0 +1,90 @@
+package com.o3.server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteDataSource;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SchemaMigratorTest {
+
+	@Test
+	@DisplayName("Statements are split at semicolons")
+	void splitsStatements() {
+		List<String> statements = SchemaMigrator.splitStatements(
+			"CREATE INDEX a ON records (id);\n\nCREATE INDEX b ON records (time_received)\n");
+
+		assertEquals(List.of("CREATE INDEX a ON records (id);", "CREATE INDEX b ON records (time_received);"),
+			statements);
+	}
+
+	@Test
+	@DisplayName("Trigger body is kept in one statement")
+	void keepsTriggerBody() {
+		String trigger = """
+			CREATE TRIGGER IF NOT EXISTS records_fts_update AFTER UPDATE ON records BEGIN
+				INSERT INTO log (id) VALUES (old.id);
+				UPDATE log SET state = CASE WHEN new.id > 0 THEN 'up' ELSE 'down' END WHERE id = new.id;
+			END""";
+
+		List<String> statements = SchemaMigrator.splitStatements(trigger + ";\nINSERT INTO log (id) VALUES (1);");
+
+		assertEquals(List.of(trigger + ";", "INSERT INTO log (id) VALUES (1);"), statements);
+	}
+
+	@Test
+	@DisplayName("Semicolons in quotes do not end a statement")
+	void ignoresQuotedSemicolons() {
+		List<String> statements = SchemaMigrator.splitStatements(
+			"INSERT INTO log (text) VALUES ('a;b', 'it''s;');\nCREATE TABLE \"x;y\" (id INTEGER);");
+
+		assertEquals(List.of("INSERT INTO log (text) VALUES ('a;b', 'it''s;');", "CREATE TABLE \"x;y\" (id INTEGER);"),
+			statements);
+	}
+
+	@Test
+	@DisplayName("Words starting a trigger elsewhere in a statement do not open a body")
+	void ignoresBeginOutsideTrigger() {
+		List<String> statements = SchemaMigrator.splitStatements(
+			"CREATE TABLE log (begin_time INTEGER, state TEXT);\nINSERT INTO log (state) VALUES ('BEGIN');");
+
+		assertEquals(2, statements.size());
+	}
+
+	@Test
+	@DisplayName("Migrations are applied once and in order")
+	void migratesOnce() throws Exception {
+		File file = Files.createTempFile("o3-migrate", ".db").toFile();
+		file.deleteOnExit();
+		SQLiteDataSource dataSource = new SQLiteDataSource();
+		dataSource.setUrl("jdbc:sqlite:" + file.getPath());
+
+		try (Connection conn = dataSource.getConnection()) {
+			try (Statement stmt = conn.createStatement()) {
+				for (String command : SchemaMigrator.splitStatements(
+					Files.readString(new File("src/main/resources/initialize.sql").toPath()))) {
+					stmt.execute(command);
+				}
+			}
+
+			int version = SchemaMigrator.migrate(conn);
+
+			assertEquals(version, SchemaMigrator.migrate(conn));
+			try (Statement stmt = conn.createStatement();
+				 ResultSet results = stmt.executeQuery("SELECT COUNT(*), MAX(version) FROM schema_version")) {
+				assertTrue(results.next());
+				assertEquals(version, results.getInt(1));
+				assertEquals(version, results.getInt(2));
+			}
+			assertEquals(0, SchemaMigrator.checkSearchPlans(conn));
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package com.o3.server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchResultCacheTest {
+
+	private static final int BLOCK_SIZE = 16;
+
+	private static SearchQuery query(Map<String, String> args) {
+		return new SearchQuery(args);
+	}
+
+	private static String body(int length, char c) {
+		return String.valueOf(c).repeat(length);
+	}
+
+	@Test
+	@DisplayName("Page spanning several blocks is read back unchanged")
+	void putAndGet() {
+		SearchResultCache cache = new SearchResultCache(64 * BLOCK_SIZE, BLOCK_SIZE);
+		String body = "[{\"recordIdentifier\":\"äö\"}," + body(3 * BLOCK_SIZE, 'x') + "]";
+		SearchQuery query = query(Map.of());
+
+		assertTrue(cache.put(query.getKey(), query, "next", body, cache.getStamp()));
+		SearchResultCache.Page page = cache.get(query.getKey());
+
+		assertNotNull(page);
+		assertEquals(body, page.body());
+		assertEquals("next", page.nextCursor());
+		assertEquals(1, cache.getEntryCount());
+		assertEquals(1, cache.getHits());
+		assertNull(cache.get("missing"));
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	@DisplayName("Replacing a page frees its old blocks")
+	void putReplaces() {
+		SearchResultCache cache = new SearchResultCache(64 * BLOCK_SIZE, BLOCK_SIZE);
+		SearchQuery query = query(Map.of());
+
+		cache.put(query.getKey(), query, null, body(4 * BLOCK_SIZE, 'a'), cache.getStamp());
+		cache.put(query.getKey(), query, null, body(BLOCK_SIZE, 'b'), cache.getStamp());
+
+		assertEquals(1, cache.getEntryCount());
+		assertEquals(BLOCK_SIZE, cache.getUsedBytes());
+		assertEquals(body(BLOCK_SIZE, 'b'), cache.get(query.getKey()).body());
+	}
+
+	@Test
+	@DisplayName("Least recently used page is evicted when the buffer is full")
+	void evictsLeastRecentlyUsed() {
+		SearchResultCache cache = new SearchResultCache(8 * BLOCK_SIZE, BLOCK_SIZE);
+		SearchQuery query = query(Map.of());
+		String page = body(BLOCK_SIZE, 'p');
+
+		for (int i = 0; i < 8; i++) {
+			assertTrue(cache.put("page" + i, query, null, page, cache.getStamp()));
+		}
+		assertNotNull(cache.get("page0"));	// page1 is now the least recently used
+		assertTrue(cache.put("page8", query, null, page, cache.getStamp()));
+
+		assertNull(cache.get("page1"));
+		assertNotNull(cache.get("page0"));
+		assertNotNull(cache.get("page8"));
+		assertEquals(8, cache.getEntryCount());
+		assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	@DisplayName("Page larger than the entry limit is not stored")
+	void rejectsOversizedPage() {
+		SearchResultCache cache = new SearchResultCache(8 * BLOCK_SIZE, BLOCK_SIZE);
+		SearchQuery query = query(Map.of());
+
+		assertFalse(cache.put("large", query, null, body(2 * BLOCK_SIZE, 'x'), cache.getStamp()));
+		assertEquals(0, cache.getEntryCount());
+		assertEquals(0, cache.getUsedBytes());
+	}
+
+	@Test
+	@DisplayName("Only pages whose filters match a change are invalidated")
+	void invalidatesMatchingPages() {
+		SearchResultCache cache = new SearchResultCache(64 * BLOCK_SIZE, BLOCK_SIZE);
+		SearchQuery all = query(Map.of());
+		SearchQuery alice = query(Map.of("nickname", "alice"));
+		SearchQuery bob = query(Map.of("nickname", "bob"));
+		SearchQuery identifier = query(Map.of("identification", "moon"));
+		SearchQuery before = query(Map.of("before", "2025-01-01T00:00:00.000Z"));
+		long stamp = cache.getStamp();
+		for (SearchQuery query : List.of(all, alice, bob, identifier, before)) {
+			assertTrue(cache.put(query.getKey(), query, null, "[]", stamp));
+		}
+
+		long after2025 = 1767225600000L;	// 2026-01-01T00:00:00Z
+		cache.invalidate(List.of(new SearchResultCache.Change("alice", "sun", after2025)));
+
+		assertNull(cache.get(all.getKey()));
+		assertNull(cache.get(alice.getKey()));
+		assertNotNull(cache.get(bob.getKey()));
+		assertNotNull(cache.get(identifier.getKey()));
+		assertNotNull(cache.get(before.getKey()));
+		assertEquals(2, cache.getInvalidations());
+		assertEquals(3 * BLOCK_SIZE, cache.getUsedBytes());
+	}
+
+	@Test
+	@DisplayName("Page read before a change is not stored after the change")
+	void rejectsPageReadBeforeChange() {
+		SearchResultCache cache = new SearchResultCache(64 * BLOCK_SIZE, BLOCK_SIZE);
+		SearchQuery query = query(Map.of("nickname", "bob"));
+
+		long stamp = cache.getStamp();
+		// A writer commits and invalidates while the page is being read
+		cache.invalidate(List.of(new SearchResultCache.Change("alice", "sun", 0)));
+
+		assertFalse(cache.put(query.getKey(), query, null, "[]", stamp));
+		assertNull(cache.get(query.getKey()));
+		assertTrue(cache.put(query.getKey(), query, null, "[]", cache.getStamp()));
+	}
+
+	@Test
+	@DisplayName("Buffer smaller than one block is rejected")
+	void rejectsBufferWithoutBlocks() {
+		assertThrows(IllegalArgumentException.class, () -> new SearchResultCache(BLOCK_SIZE - 1, BLOCK_SIZE));
+		assertThrows(IllegalArgumentException.class, () -> new SearchResultCache(BLOCK_SIZE, 0));
+	}
+
+	@Test
+	@DisplayName("Entry limit does not exceed the buffer")
+	void entryLimitFitsBuffer() {
+		SearchResultCache cache = new SearchResultCache(BLOCK_SIZE + BLOCK_SIZE / 2, BLOCK_SIZE);
+		SearchQuery query = query(Map.of());
+
+		assertEquals(BLOCK_SIZE, cache.getCapacityBytes());
+		assertFalse(cache.put("large", query, null, body(BLOCK_SIZE + 1, 'x'), cache.getStamp()));
+		assertTrue(cache.put("small", query, null, body(BLOCK_SIZE, 'x'), cache.getStamp()));
+	}
+}
@@ -0,0 +1,113 @@
+package com.o3.server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpatialSearchTest {
+
+	private static final double DELTA = 0.01;
+	private static final double KM_PER_DEGREE = 111.195;	// Length of a degree of latitude
+
+	/**
+	 * Creates a user with records at observatories on both sides of the antimeridian and at the prime meridian.
+	 *
+	 * @return The username.
+	 */
+	private static String createRecords() throws Exception {
+		String user = TestDatabase.createUser("spatial");
+		TestDatabase.insert(user, "east", "payload", new Observatory("East", "65.0", "179.9"));
+		TestDatabase.insert(user, "west", "payload", new Observatory("West", "65.0", "-179.9"));
+		TestDatabase.insert(user, "greenwich", "payload", new Observatory("Greenwich", "65.0", "0.0"));
+		TestDatabase.insert(user, "pole", "payload", new Observatory("Pole", "89.5", "100.0"));
+		return user;
+	}
+
+	private static List<String> search(String user, Map<String, String> area) throws Exception {
+		Map<String, String> args = new HashMap<>(area);
+		args.put("nickname", user);
+		return TestDatabase.search(args).identifiers();
+	}
+
+	@Test
+	@DisplayName("Bounding box of a circle at the antimeridian wraps around")
+	void boundsCrossAntimeridian() {
+		double[] east = SearchQuery.getBounds(new double[]{0, 179.5, KM_PER_DEGREE});
+		double[] west = SearchQuery.getBounds(new double[]{0, -179.5, KM_PER_DEGREE});
+
+		assertArrayEquals(new double[]{-1, 178.5, 1, -179.5}, east, DELTA);
+		assertArrayEquals(new double[]{-1, 179.5, 1, -178.5}, west, DELTA);
+	}
+
+	@Test
+	@DisplayName("Bounding box widens in longitude away from the equator")
+	void boundsWidenWithLatitude() {
+		double[] bounds = SearchQuery.getBounds(new double[]{60, 25, KM_PER_DEGREE});
+
+		assertEquals(59, bounds[0], DELTA);
+		assertEquals(61, bounds[2], DELTA);
+		assertTrue(bounds[1] < 23.1 && bounds[1] > 22.9);
+		assertTrue(bounds[3] > 26.9 && bounds[3] < 27.1);
+	}
+
+	@Test
+	@DisplayName("Bounding box of a circle containing a pole covers all longitudes")
+	void boundsContainPole() {
+		assertArrayEquals(new double[]{87.5, -180, 90, 180},
+			SearchQuery.getBounds(new double[]{89, 0, 1.5 * KM_PER_DEGREE}), DELTA);
+		assertArrayEquals(new double[]{-90, -180, -87.5, 180},
+			SearchQuery.getBounds(new double[]{-89, 0, 1.5 * KM_PER_DEGREE}), DELTA);
+	}
+
+	@Test
+	@DisplayName("Bounding box search crossing the antimeridian finds both sides")
+	void searchesBoxAcrossAntimeridian() throws Exception {
+		String user = createRecords();
+
+		assertEquals(List.of("east", "west"), search(user, Map.of("bbox", "60,170,70,-170")));
+		assertEquals(List.of("greenwich"), search(user, Map.of("bbox", "60,-10,70,10")));
+		assertEquals(List.of("east"), search(user, Map.of("bbox", "60,170,70,180")));
+	}
+
+	@Test
+	@DisplayName("Distance search near the antimeridian finds both sides")
+	void searchesCircleAcrossAntimeridian() throws Exception {
+		String user = createRecords();
+
+		assertEquals(List.of("east", "west"),
+			search(user, Map.of("latitude", "65.0", "longitude", "180", "radius", "50")));
+		assertEquals(List.of("west"),
+			search(user, Map.of("latitude", "65.0", "longitude", "-179.8", "radius", "5")));
+	}
+
+	@Test
+	@DisplayName("Distance search containing a pole finds observatories at any longitude")
+	void searchesCircleAroundPole() throws Exception {
+		String user = createRecords();
+
+		assertEquals(List.of("pole"), search(user, Map.of("latitude", "89.9", "longitude", "-80", "radius", "100")));
+	}
+
+	@Test
+	@DisplayName("Invalid areas are rejected")
+	void rejectsInvalidAreas() {
+		assertThrows(IllegalArgumentException.class, () -> new SearchQuery(Map.of("bbox", "70,0,60,10")));
+		assertThrows(IllegalArgumentException.class, () -> new SearchQuery(Map.of("bbox", "60,0,70")));
+		assertThrows(IllegalArgumentException.class, () -> new SearchQuery(Map.of("bbox", "60,0,91,10")));
+		assertThrows(IllegalArgumentException.class, () -> new SearchQuery(Map.of("bbox", "60,0,70,181")));
+		assertThrows(IllegalArgumentException.class,
+			() -> new SearchQuery(Map.of("latitude", "65", "longitude", "25")));
+		assertThrows(IllegalArgumentException.class,
+			() -> new SearchQuery(Map.of("latitude", "65", "longitude", "25", "radius", "0")));
+		assertThrows(IllegalArgumentException.class,
+			() -> new SearchQuery(Map.of("latitude", "NaN", "longitude", "25", "radius", "10")));
+	}
+}
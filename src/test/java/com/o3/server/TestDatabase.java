@@ -0,0 +1,101 @@
+package com.o3.server;
+
+import org.json.JSONArray;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Database shared by the tests of a test run. MessageDataBase is a singleton, so every test uses the same
+ * temporary database file and keeps its records apart with a user of its own.
+ */
+final class TestDatabase {
+
+	static final String PASSWORD = "password";
+
+	private static final AtomicInteger users = new AtomicInteger();
+	private static String databaseFile;
+
+	/**
+	 * A page of search results.
+	 *
+	 * @param identifiers The record identifiers of the page in order.
+	 * @param nextCursor  The cursor of the next page, or null if this is the last page.
+	 */
+	record Page(List<String> identifiers, String nextCursor) {
+	}
+
+	private TestDatabase() {
+	}
+
+	static synchronized String getFile() throws IOException {
+		if (databaseFile == null) {
+			File file = Files.createTempFile("o3-test", ".db").toFile();
+			for (String suffix : new String[]{"", "-wal", "-shm"}) {
+				new File(file.getPath() + suffix).deleteOnExit();
+			}
+			databaseFile = file.getPath();
+		}
+		return databaseFile;
+	}
+
+	static MessageDataBase get() throws SQLException, IOException {
+		return MessageDataBase.getInstance(getFile());
+	}
+
+	/**
+	 * Registers a new user whose username and nickname are unique in the test run.
+	 *
+	 * @param prefix The start of the username.
+	 * @return The username, also used as the nickname.
+	 */
+	static String createUser(String prefix) throws SQLException, IOException {
+		String username = prefix + "-" + users.incrementAndGet() + "-" + System.nanoTime();
+		get().insertUser(new User(username, PASSWORD, username + "@example.com", username));
+		return username;
+	}
+
+	/**
+	 * Inserts a record without an observatory.
+	 *
+	 * @return The id of the record.
+	 */
+	static int insert(String owner, String identifier, String payload) throws SQLException, IOException {
+		return insert(owner, identifier, payload, null);
+	}
+
+	/**
+	 * Inserts a record at an observatory.
+	 *
+	 * @return The id of the record.
+	 */
+	static int insert(String owner, String identifier, String payload, Observatory observatory)
+		throws SQLException, IOException {
+		return get().insertRecord(new ObservationRecord(identifier, "Description of " + identifier, payload,
+			"12h 30m", "-2d 10m", owner, observatory, null, null));
+	}
+
+	/**
+	 * Reads one page of search results.
+	 *
+	 * @param searchArgs The search arguments.
+	 * @return The page.
+	 */
+	static Page search(Map<String, String> searchArgs) throws SQLException, IOException {
+		StringWriter writer = new StringWriter();
+		String nextCursor = get().writeObservations(new SearchQuery(searchArgs), writer);
+		JSONArray array = new JSONArray(writer.toString());
+		List<String> identifiers = new ArrayList<>();
+		for (int i = 0; i < array.length(); i++) {
+			identifiers.add(array.getJSONObject(i).getString("recordIdentifier"));
+		}
+		return new Page(identifiers, nextCursor);
+	}
+}
@@ -0,0 +1,80 @@
+package com.o3.server;
+
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * HTTP server on a free loopback port serving one handler, for tests of the request handlers.
+ */
+final class TestServer implements AutoCloseable {
+
+	private final HttpServer server;
+	private final HttpClient client = HttpClient.newHttpClient();
+	private final String path;
+
+	/**
+	 * Starts a server serving the handler at the path.
+	 *
+	 * @param path          The context path of the handler.
+	 * @param handler       The handler.
+	 * @param authenticated True to require the credentials of a user of the test database.
+	 */
+	TestServer(String path, HttpHandler handler, boolean authenticated) throws Exception {
+		this.path = path;
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		HttpContext context = server.createContext(path, handler);
+		if (authenticated) {
+			context.getFilters().add(new AuthenticationFilter(new UserAuthenticator(TestDatabase.getFile())));
+		}
+		server.start();
+	}
+
+	/**
+	 * Creates a request to the handler.
+	 *
+	 * @param query The query string without "?", or null.
+	 * @return The request builder.
+	 */
+	HttpRequest.Builder request(String query) {
+		InetSocketAddress address = server.getAddress();
+		return HttpRequest.newBuilder(URI.create("http://" + address.getHostString() + ":" + address.getPort()
+			+ path + (query != null ? "?" + query : "")));
+	}
+
+	/**
+	 * Creates a request to the handler with the Basic credentials of a test user.
+	 *
+	 * @param username The username, the password is {@link TestDatabase#PASSWORD}.
+	 * @param query    The query string without "?", or null.
+	 * @return The request builder.
+	 */
+	HttpRequest.Builder request(String username, String query) {
+		String credentials = username + ":" + TestDatabase.PASSWORD;
+		return request(query).header("Authorization",
+			"Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	HttpResponse<byte[]> send(HttpRequest request) throws IOException, InterruptedException {
+		return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+	}
+
+	HttpResponse<String> sendForString(HttpRequest request) throws IOException, InterruptedException {
+		return client.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+}
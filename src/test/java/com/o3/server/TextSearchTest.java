@@ -0,0 +1,98 @@
+package com.o3.server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextSearchTest {
+
+	@Test
+	@DisplayName("Records with more occurrences of the text rank first")
+	void ordersByRank() throws Exception {
+		String user = TestDatabase.createUser("text");
+		TestDatabase.insert(user, "once", "nebula seen near the horizon with some clouds");
+		TestDatabase.insert(user, "none", "clear sky");
+		TestDatabase.insert(user, "thrice", "nebula nebula nebula");
+
+		TestDatabase.Page page = TestDatabase.search(Map.of("nickname", user, "text", "nebula"));
+
+		assertEquals(List.of("thrice", "once"), page.identifiers());
+	}
+
+	@Test
+	@DisplayName("Every word of the text must match, in any case and with diacritics removed")
+	void matchesAllWords() throws Exception {
+		String user = TestDatabase.createUser("text");
+		TestDatabase.insert(user, "both", "Bright Comet over the lake");
+		TestDatabase.insert(user, "one", "bright star");
+
+		assertEquals(List.of("both"),
+			TestDatabase.search(Map.of("nickname", user, "text", "comet bright")).identifiers());
+		assertEquals(List.of("both"),
+			TestDatabase.search(Map.of("nickname", user, "text", "cömet")).identifiers());
+	}
+
+	@Test
+	@DisplayName("FTS5 syntax in the text is searched as plain words")
+	void quotesSyntax() throws Exception {
+		String user = TestDatabase.createUser("text");
+		TestDatabase.insert(user, "record", "aurora OR \"meteor\"");
+
+		assertEquals(List.of("record"),
+			TestDatabase.search(Map.of("nickname", user, "text", "aurora OR \"meteor*")).identifiers());
+		assertEquals(List.of(), TestDatabase.search(Map.of("nickname", user, "text", "NOT aurora")).identifiers());
+	}
+
+	@Test
+	@DisplayName("Rank cursors visit every match once, also when ranks are equal")
+	void pagesByRank() throws Exception {
+		String user = TestDatabase.createUser("text");
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 7; i++) {
+			// Records 0-3 have the same rank, so their order is decided by id
+			String identifier = "record" + i;
+			TestDatabase.insert(user, identifier, "galaxy ".repeat(i < 4 ? 1 : i));
+			expected.add(identifier);
+		}
+		List<String> ranked = TestDatabase.search(Map.of("nickname", user, "text", "galaxy", "limit", "100"))
+			.identifiers();
+
+		List<String> paged = new ArrayList<>();
+		Map<String, String> args = new HashMap<>(Map.of("nickname", user, "text", "galaxy", "limit", "2"));
+		TestDatabase.Page page;
+		do {
+			page = TestDatabase.search(args);
+			paged.addAll(page.identifiers());
+			args.put("cursor", page.nextCursor());
+		} while (page.nextCursor() != null && paged.size() <= expected.size());
+
+		assertEquals(ranked, paged);
+		assertTrue(paged.containsAll(expected) && paged.size() == expected.size());
+		assertEquals(List.of("record6", "record5", "record4"), paged.subList(0, 3));
+	}
+
+	@Test
+	@DisplayName("Offset and time cursors are rejected in a text search")
+	void rejectsOtherCursors() {
+		String offsetCursor = Base64.getUrlEncoder().withoutPadding()
+			.encodeToString("rank:2".getBytes(StandardCharsets.UTF_8));
+
+		assertThrows(IllegalArgumentException.class,
+			() -> new SearchQuery(Map.of("text", "galaxy", "cursor", offsetCursor)));
+		assertThrows(IllegalArgumentException.class,
+			() -> new SearchQuery(Map.of("text", "galaxy", "cursor", SearchQuery.encodeCursor(0, 0))));
+		assertThrows(IllegalArgumentException.class,
+			() -> new SearchQuery(Map.of("cursor", SearchQuery.encodeRankCursor(-1.0, 0))));
+		assertThrows(IllegalArgumentException.class, () -> new SearchQuery(Map.of("text", " ")));
+	}
+}
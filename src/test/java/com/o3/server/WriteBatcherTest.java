@@ -0,0 +1,148 @@
+package com.o3.server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteDataSource;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WriteBatcherTest {
+
+	private static final long BATCH_DELAY = 200_000;	// Microseconds, long enough to batch the concurrent writes
+
+	private static SQLiteDataSource createDataSource() throws Exception {
+		File file = Files.createTempFile("o3-batch", ".db").toFile();
+		file.deleteOnExit();
+		SQLiteDataSource dataSource = new SQLiteDataSource();
+		dataSource.setUrl("jdbc:sqlite:" + file.getPath());
+		try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+			stmt.execute("CREATE TABLE log (id INTEGER PRIMARY KEY, text TEXT NOT NULL)");
+		}
+		return dataSource;
+	}
+
+	private static WriteBatcher.Write<Integer> insert(int id, String text) {
+		return conn -> {
+			try (PreparedStatement ps = conn.prepareStatement("INSERT INTO log (id, text) VALUES (?,?)")) {
+				ps.setInt(1, id);
+				ps.setString(2, text);
+				return ps.executeUpdate();
+			}
+		};
+	}
+
+	private static List<Integer> readIds(SQLiteDataSource dataSource) throws SQLException {
+		List<Integer> ids = new ArrayList<>();
+		try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement();
+			 ResultSet results = stmt.executeQuery("SELECT id FROM log ORDER BY id")) {
+			while (results.next()) {
+				ids.add(results.getInt(1));
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Executes the writes concurrently, so they are committed in the same batch.
+	 */
+	private static List<CompletableFuture<Integer>> executeAll(WriteBatcher batcher,
+															   List<WriteBatcher.Write<Integer>> writes) {
+		List<CompletableFuture<Integer>> futures = new ArrayList<>();
+		for (WriteBatcher.Write<Integer> write : writes) {
+			futures.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					return batcher.execute(write);
+				} catch (SQLException e) {
+					throw new RuntimeException(e);
+				}
+			}));
+		}
+		return futures;
+	}
+
+	@Test
+	@DisplayName("Concurrent writes are committed in one transaction")
+	void batchesWrites() throws Exception {
+		SQLiteDataSource dataSource = createDataSource();
+		WriteBatcher batcher = new WriteBatcher(dataSource, 16, BATCH_DELAY);
+
+		for (CompletableFuture<Integer> future : executeAll(batcher, List.of(insert(1, "a"), insert(2, "b"),
+			insert(3, "c")))) {
+			assertEquals(1, future.get());
+		}
+
+		assertEquals(List.of(1, 2, 3), readIds(dataSource));
+		assertEquals(1, batcher.getBatchCount());
+		assertEquals(3, batcher.getWriteCount());
+	}
+
+	@Test
+	@DisplayName("Failing write is rolled back alone and the rest of its batch is committed")
+	void rollsBackFailingWrite() throws Exception {
+		SQLiteDataSource dataSource = createDataSource();
+		WriteBatcher batcher = new WriteBatcher(dataSource, 16, BATCH_DELAY);
+		// Inserts a row, then fails on a duplicate id, so the first insert must be undone as well
+		WriteBatcher.Write<Integer> failing = conn -> {
+			insert(10, "partial").execute(conn);
+			return insert(10, "duplicate").execute(conn);
+		};
+
+		List<CompletableFuture<Integer>> futures = executeAll(batcher, List.of(insert(1, "a"), failing,
+			insert(2, "b")));
+
+		assertEquals(1, futures.get(0).get());
+		ExecutionException error = assertThrows(ExecutionException.class, () -> futures.get(1).get());
+		assertInstanceOf(SQLException.class, error.getCause().getCause());
+		assertEquals(1, futures.get(2).get());
+		assertEquals(List.of(1, 2), readIds(dataSource));
+		assertEquals(1, batcher.getBatchCount());
+	}
+
+	@Test
+	@DisplayName("Runtime exception of a write fails only that write")
+	void rollsBackRuntimeException() throws Exception {
+		SQLiteDataSource dataSource = createDataSource();
+		WriteBatcher batcher = new WriteBatcher(dataSource, 16, BATCH_DELAY);
+
+		SQLException error = assertThrows(SQLException.class, () -> batcher.execute(conn -> {
+			insert(1, "a").execute(conn);
+			throw new IllegalStateException("Write failed");
+		}));
+
+		assertInstanceOf(IllegalStateException.class, error.getCause());
+		assertEquals(1, batcher.execute(insert(2, "b")));
+		assertEquals(List.of(2), readIds(dataSource));
+	}
+
+	@Test
+	@DisplayName("Error fails its batch and the writer keeps serving later writes")
+	void survivesError() throws Exception {
+		SQLiteDataSource dataSource = createDataSource();
+		WriteBatcher batcher = new WriteBatcher(dataSource, 16, BATCH_DELAY);
+
+		List<CompletableFuture<Integer>> futures = executeAll(batcher, List.of(insert(1, "a"), conn -> {
+			throw new AssertionError("Unexpected error");
+		}));
+
+		for (CompletableFuture<Integer> future : futures) {
+			assertThrows(ExecutionException.class, future::get);
+		}
+		assertEquals(List.of(), readIds(dataSource));
+		assertEquals(1, batcher.execute(insert(2, "b")));
+		assertEquals(List.of(2), readIds(dataSource));
+	}
+}
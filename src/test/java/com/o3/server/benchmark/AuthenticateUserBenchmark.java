@@ -0,0 +1,69 @@
+package com.o3.server.benchmark;
+
+import com.o3.server.MessageDataBase;
+import com.o3.server.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures checking a password against the stored SHA-512 crypt hash, the cost of every credential cache miss.
+ * Run from the project root, the database reads its schema from src/main/resources.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthenticateUserBenchmark {
+
+	private static final String USERNAME = "benchmark";
+	private static final String PASSWORD = "password";
+
+	private File databaseFile;
+	private MessageDataBase database;
+
+	@Setup
+	public void setup() throws IOException, SQLException {
+		databaseFile = Files.createTempFile("o3-authenticate-benchmark", ".db").toFile();
+		database = MessageDataBase.getInstance(databaseFile.getPath());
+		database.insertUser(new User(USERNAME, PASSWORD, "benchmark@example.com"));
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (!databaseFile.delete()) {
+			databaseFile.deleteOnExit();
+		}
+	}
+
+	@Benchmark
+	public boolean validPassword() throws SQLException {
+		return database.authenticateUser(USERNAME, PASSWORD);
+	}
+
+	@Benchmark
+	public boolean invalidPassword() throws SQLException {
+		return database.authenticateUser(USERNAME, "wrong");
+	}
+
+	@Benchmark
+	public boolean unknownUser() throws SQLException {
+		return database.authenticateUser("unknown", PASSWORD);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+			.include(AuthenticateUserBenchmark.class.getSimpleName())
+			.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,105 @@
+package com.o3.server.benchmark;
+
+import com.o3.server.MessageDataBase;
+import com.o3.server.ObservationRecord;
+import com.o3.server.Observatory;
+import com.o3.server.SearchQuery;
+import com.o3.server.User;
+import com.o3.server.WeatherData;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading and serializing every record of a table with 1k, 100k and 1M rows in a single page.
+ * Every tenth record has an observatory and weather data. The table is filled once per fork, which takes
+ * a while for 1M rows. Run from the project root, the database reads its schema from src/main/resources.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dsearch.maxPageSize=1000000"})
+@State(Scope.Benchmark)
+public class GetObservationsBenchmark {
+
+	private static final String USERNAME = "benchmark";
+	private static final int BATCH_SIZE = 1000;
+
+	@Param({"1000", "100000", "1000000"})
+	private int rows;
+
+	private File databaseFile;
+	private MessageDataBase database;
+	private SearchQuery searchQuery;
+
+	@Setup
+	public void setup() throws IOException, SQLException {
+		databaseFile = Files.createTempFile("o3-observations-benchmark", ".db").toFile();
+		database = MessageDataBase.getInstance(databaseFile.getPath());
+		database.insertUser(new User(USERNAME, "password", "benchmark@example.com", USERNAME));
+		populate();
+		searchQuery = new SearchQuery(Map.of());
+		if (searchQuery.getLimit() < rows) {
+			throw new IllegalStateException("Page size " + searchQuery.getLimit() + " is smaller than " + rows);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (!databaseFile.delete()) {
+			databaseFile.deleteOnExit();
+		}
+	}
+
+	/**
+	 * Streams the records to a writer discarding the output, as the search handler does.
+	 */
+	@Benchmark
+	public void writeObservations() throws SQLException, IOException {
+		database.writeObservations(searchQuery, Writer.nullWriter());
+	}
+
+	/**
+	 * Builds the whole response as a string.
+	 */
+	@Benchmark
+	public String getObservations() throws SQLException {
+		return database.getObservations(searchQuery);
+	}
+
+	private void populate() throws SQLException {
+		Observatory observatory = new Observatory("Benchmark observatory", "65.0124", "25.4682");
+		WeatherData weatherData = new WeatherData("271.15", "1013", "85", "40", "12");
+		List<ObservationRecord> batch = new ArrayList<>(BATCH_SIZE);
+		boolean[] queueDescription = new boolean[BATCH_SIZE];
+		for (int i = 0; i < rows; i++) {
+			boolean full = i % 10 == 0;
+			batch.add(new ObservationRecord("Target " + (i % 100), "Benchmark record " + i,
+				"Payload of benchmark record " + i + " describing the observed target in a sentence or two.",
+				"12h 30m", "-2d 10m", USERNAME, full ? observatory : null, full ? weatherData : null, null));
+			if (batch.size() == BATCH_SIZE || i == rows - 1) {
+				database.insertRecords(batch, queueDescription);
+				batch.clear();
+			}
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+			.include(GetObservationsBenchmark.class.getSimpleName())
+			.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,76 @@
+package com.o3.server.benchmark;
+
+import com.o3.server.MessageDataBase;
+import com.o3.server.ObservationRecord;
+import com.o3.server.Observatory;
+import com.o3.server.User;
+import com.o3.server.WeatherData;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures observation inserts per second against a temporary SQLite file, with weather data and
+ * observatory so every insert writes three tables.
+ * Run from the project root, the database reads its schema from src/main/resources.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InsertRecordBenchmark {
+
+	private static final String USERNAME = "benchmark";
+
+	private File databaseFile;
+	private MessageDataBase database;
+	private final WeatherData weatherData = new WeatherData("271.15", "1013", "85", "40", "12");
+	private final Observatory observatory = new Observatory("Benchmark observatory", "65.0124", "25.4682");
+
+	@Setup
+	public void setup() throws IOException, SQLException {
+		databaseFile = Files.createTempFile("o3-insert-benchmark", ".db").toFile();
+		database = MessageDataBase.getInstance(databaseFile.getPath());
+		database.insertUser(new User(USERNAME, "password", "benchmark@example.com"));
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (!databaseFile.delete()) {
+			databaseFile.deleteOnExit();
+		}
+	}
+
+	@Benchmark
+	public int insertRecord() throws SQLException {
+		return database.insertRecord(newRecord());
+	}
+
+	@Benchmark
+	@Threads(4)
+	public int insertRecordConcurrent() throws SQLException {
+		return database.insertRecord(newRecord());
+	}
+
+	private ObservationRecord newRecord() {
+		return new ObservationRecord("Jupiter", "Great Red Spot visible",
+			"Jupiter's Great Red Spot was prominently visible during steady seeing.",
+			"12h 30m", "-2d 10m", USERNAME, observatory, weatherData, null);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+			.include(InsertRecordBenchmark.class.getSimpleName())
+			.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,62 @@
+package com.o3.server.benchmark;
+
+import com.o3.server.ObservationRecord;
+import com.o3.server.Observatory;
+import com.o3.server.WeatherData;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures converting a record to JSON, with and without observatory and weather data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ObservationRecordBenchmark {
+
+	private static final long TIME = 1735689600000L;	// 2025-01-01T00:00:00Z
+
+	private ObservationRecord plainRecord;
+	private ObservationRecord fullRecord;
+
+	@Setup
+	public void setup() {
+		plainRecord = new ObservationRecord(1, "Jupiter", "Great Red Spot visible",
+			"Jupiter's Great Red Spot was prominently visible during steady seeing.", "12h 30m", "-2d 10m",
+			"benchmark", TIME, null, null, "N/A", TIME, null);
+		fullRecord = new ObservationRecord(2, "Jupiter", "Great Red Spot visible",
+			"Jupiter's Great Red Spot was prominently visible during steady seeing.", "12h 30m", "-2d 10m",
+			"benchmark", TIME, new Observatory("Benchmark observatory", "65.0124", "25.4682"),
+			new WeatherData("271.15", "1013", "85", "40", "12"), "Corrected declination", TIME + 60000, "DONE");
+	}
+
+	@Benchmark
+	public JSONObject plainRecord() {
+		return plainRecord.getJSONObject();
+	}
+
+	@Benchmark
+	public JSONObject fullRecord() {
+		return fullRecord.getJSONObject();
+	}
+
+	@Benchmark
+	public String fullRecordToString() {
+		return fullRecord.getJSONObject().toString();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+			.include(ObservationRecordBenchmark.class.getSimpleName())
+			.build();
+		new Runner(options).run();
+	}
+}
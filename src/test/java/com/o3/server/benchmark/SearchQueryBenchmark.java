@@ -0,0 +1,67 @@
+package com.o3.server.benchmark;
+
+import com.o3.server.SearchQuery;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a search query and binding its parameters for the supported search shapes.
+ * Parameters are bound to a statement that ignores them, so only the query code is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchQueryBenchmark {
+
+	private static final Map<String, Map<String, String>> SHAPES = Map.of(
+		"all", Map.of(),
+		"nickname", Map.of("nickname", "benchmark"),
+		"identifierTime", Map.of("identification", "Jupiter",
+			"after", "2025-01-01T00:00:00.000Z", "before", "2025-02-01T00:00:00.000Z"),
+		"cursor", Map.of("limit", "100", "cursor", SearchQuery.encodeCursor(1735689600000L, 1000))
+	);
+
+	@Param({"all", "nickname", "identifierTime", "cursor"})
+	private String shape;
+
+	private Map<String, String> searchArgs;
+	private SearchQuery searchQuery;
+	private PreparedStatement statement;
+
+	@Setup
+	public void setup() {
+		searchArgs = SHAPES.get(shape);
+		searchQuery = new SearchQuery(searchArgs);
+		statement = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+			new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> null);
+	}
+
+	@Benchmark
+	public SearchQuery construct() {
+		return new SearchQuery(searchArgs);
+	}
+
+	@Benchmark
+	public PreparedStatement setParams() throws SQLException {
+		searchQuery.setParams(statement);
+		return statement;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+			.include(SearchQueryBenchmark.class.getSimpleName())
+			.build();
+		new Runner(options).run();
+	}
+}
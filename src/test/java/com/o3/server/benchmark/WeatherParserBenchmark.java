@@ -0,0 +1,69 @@
+package com.o3.server.benchmark;
+
+import com.o3.server.WeatherXMLParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the streaming WFS response parser against the earlier regex parser.
+ * Run with "mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.o3.server.benchmark.WeatherParserBenchmark".
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WeatherParserBenchmark {
+
+	@Param({"1", "24", "168"})
+	private int timeSteps;
+
+	private byte[] body;
+
+	@Setup
+	public void setup() {
+		body = WfsResponses.create(timeSteps).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public String[] streamingParser() throws XMLStreamException {
+		return WeatherXMLParser.parse(new ByteArrayInputStream(body));
+	}
+
+	/**
+	 * The earlier parser: buffers the body as a String and takes the first five values by position.
+	 */
+	@Benchmark
+	public String[] regexParser() {
+		String xmlString = new String(body, StandardCharsets.UTF_8);
+		String[] data = new String[5];
+		Pattern pattern = Pattern.compile("<BsWfs:ParameterValue>(.*?)</BsWfs:ParameterValue>");
+		Matcher matcher = pattern.matcher(xmlString);
+		int i = 0;
+		while (matcher.find()) {
+			if ((matcher.group(1) == null) || i > 4) {
+				break;
+			}
+			data[i++] = matcher.group(1);
+		}
+		return data;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+			.include(WeatherParserBenchmark.class.getSimpleName())
+			.build();
+		new Runner(options).run();
+	}
+}
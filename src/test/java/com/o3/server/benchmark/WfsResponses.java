@@ -0,0 +1,55 @@
+package com.o3.server.benchmark;
+
+import com.o3.server.WeatherXMLParser;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+/**
+ * Builds WFS simple feature responses shaped like the ones returned by the weather service.
+ */
+public final class WfsResponses {
+
+	private WfsResponses() {
+	}
+
+	/**
+	 * Creates a response with one element per requested parameter and time step.
+	 *
+	 * @param timeSteps The number of hourly time steps in the response.
+	 * @return The XML response body.
+	 */
+	public static String create(int timeSteps) {
+		StringBuilder sb = new StringBuilder()
+			.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+			.append("<wfs:FeatureCollection timeStamp=\"2025-03-01T12:00:00Z\" numberMatched=\"")
+			.append(timeSteps * WeatherXMLParser.PARAMETERS.length)
+			.append("\" numberReturned=\"")
+			.append(timeSteps * WeatherXMLParser.PARAMETERS.length)
+			.append("\"\n    xmlns:wfs=\"http://www.opengis.net/wfs/2.0\"\n")
+			.append("    xmlns:gml=\"http://www.opengis.net/gml/3.2\"\n")
+			.append("    xmlns:BsWfs=\"http://xml.fmi.fi/schema/wfs/2.0\">\n");
+		Instant time = Instant.parse("2025-03-01T12:00:00Z");
+		for (int step = 0; step < timeSteps; step++) {
+			for (int i = 0; i < WeatherXMLParser.PARAMETERS.length; i++) {
+				sb.append("  <wfs:member>\n")
+					.append("    <BsWfs:BsWfsElement gml:id=\"BsWfsElement.1.").append(step + 1).append('.')
+					.append(i + 1).append("\">\n")
+					.append("      <BsWfs:Location>\n")
+					.append("        <gml:Point gml:id=\"BsWfsElementP.1.").append(step + 1).append('.')
+					.append(i + 1).append("\" srsDimension=\"2\" srsName=\"http://www.opengis.net/def/crs/EPSG/0/4258\">\n")
+					.append("          <gml:pos>65.01236 25.46816 </gml:pos>\n")
+					.append("        </gml:Point>\n")
+					.append("      </BsWfs:Location>\n")
+					.append("      <BsWfs:Time>").append(time.plus(step, ChronoUnit.HOURS)).append("</BsWfs:Time>\n")
+					.append("      <BsWfs:ParameterName>").append(WeatherXMLParser.PARAMETERS[i])
+					.append("</BsWfs:ParameterName>\n")
+					.append("      <BsWfs:ParameterValue>").append(String.format(Locale.ROOT, "%.1f", -5.0 + step * 0.1 + i))
+					.append("</BsWfs:ParameterValue>\n")
+					.append("    </BsWfs:BsWfsElement>\n")
+					.append("  </wfs:member>\n");
+			}
+		}
+		return sb.append("</wfs:FeatureCollection>\n").toString();
+	}
+}
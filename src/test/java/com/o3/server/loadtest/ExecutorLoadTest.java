@@ -0,0 +1,177 @@
+package com.o3.server.loadtest;
+
+import com.o3.server.MessageDataBase;
+import com.o3.server.ObservationRecord;
+import com.o3.server.SearchQuery;
+import com.o3.server.Server;
+import com.o3.server.User;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Compares the executor modes of the server under many concurrent blocking requests.
+ * Every request reads a page of observations from a temporary SQLite file and then sleeps to simulate a slow
+ * weather service call. Run each mode in its own JVM from the project root, so thread and memory peaks are not
+ * shared between runs:
+ * <pre>
+ * ExecutorLoadTest cached [concurrency] [seconds] [latencyMillis]
+ * ExecutorLoadTest virtual [concurrency] [seconds] [latencyMillis]
+ * </pre>
+ * Add -Djdk.tracePinnedThreads=full to print virtual threads blocking while pinned to their carrier.
+ */
+public class ExecutorLoadTest {
+
+	private static final String USERNAME = "loadtest";
+	private static final int RECORDS = 1000;
+	private static final int PAGE_SIZE = 20;
+
+	public static void main(String[] args) throws Exception {
+		String mode = args.length > 0 ? args[0] : "virtual";
+		int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		long latency = args.length > 3 ? Long.parseLong(args[3]) : 50;
+
+		File databaseFile = Files.createTempFile("o3-executor-loadtest", ".db").toFile();
+		databaseFile.deleteOnExit();
+		MessageDataBase database = MessageDataBase.getInstance(databaseFile.getPath());
+		populate(database);
+
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 4096);
+		server.createContext("/search", exchange -> handle(exchange, database, latency));
+		ExecutorService serverExecutor = Server.createExecutor(mode);
+		server.setExecutor(serverExecutor);
+		server.start();
+		URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/search");
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		threads.resetPeakThreadCount();
+		AtomicLong completed = new AtomicLong();
+		AtomicLong errors = new AtomicLong();
+		AtomicLongArray latencies = new AtomicLongArray(10000);	// Histogram of latencies in milliseconds
+		long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+		// Clients run on virtual threads, so the platform thread count reflects the server executor.
+		try (ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+			 HttpClient client = HttpClient.newBuilder()
+				 .version(HttpClient.Version.HTTP_1_1)
+				 .executor(clientExecutor)
+				 .connectTimeout(Duration.ofSeconds(10))
+				 .build();
+			 ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+			HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).build();
+			for (int i = 0; i < concurrency; i++) {
+				clients.submit(() -> {
+					while (System.nanoTime() < end) {
+						long start = System.nanoTime();
+						try {
+							HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+							if (response.statusCode() == 200) {
+								completed.incrementAndGet();
+								long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+								latencies.incrementAndGet((int) Math.min(millis, latencies.length() - 1));
+							} else {
+								errors.incrementAndGet();
+							}
+						} catch (IOException e) {
+							errors.incrementAndGet();
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+				});
+			}
+			clients.shutdown();
+			clients.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+		}
+
+		int peakThreads = threads.getPeakThreadCount();
+		server.stop(0);
+		serverExecutor.shutdownNow();
+		System.gc();
+		long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+		System.out.printf("mode=%s concurrency=%d seconds=%d latency=%dms%n", mode, concurrency, seconds, latency);
+		System.out.printf("throughput=%.1f req/s completed=%d errors=%d%n",
+			completed.get() / (double) seconds, completed.get(), errors.get());
+		System.out.printf("p50=%dms p99=%dms%n", percentile(latencies, 0.50), percentile(latencies, 0.99));
+		System.out.printf("peakPlatformThreads=%d heapUsedAfterGc=%dMB peakRss=%s%n",
+			peakThreads, heapUsed / (1024 * 1024), readPeakRss());
+	}
+
+	private static void handle(HttpExchange exchange, MessageDataBase database, long latency) throws IOException {
+		try {
+			String body = database.getObservations(new SearchQuery(Map.of("limit", String.valueOf(PAGE_SIZE))));
+			Thread.sleep(latency);
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, bytes.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(bytes);
+			}
+		} catch (SQLException | InterruptedException e) {
+			exchange.sendResponseHeaders(500, -1);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private static void populate(MessageDataBase database) throws SQLException {
+		database.insertUser(new User(USERNAME, "password", "loadtest@example.com"));
+		for (int i = 0; i < RECORDS; i++) {
+			database.insertRecord(new ObservationRecord("Target " + i, "Load test record",
+				"Payload of load test record " + i, "12h 30m", "-2d 10m", USERNAME, null, null, null));
+		}
+	}
+
+	private static long percentile(AtomicLongArray histogram, double percentile) {
+		long total = 0;
+		for (int i = 0; i < histogram.length(); i++) {
+			total += histogram.get(i);
+		}
+		long rank = (long) Math.ceil(total * percentile);
+		long seen = 0;
+		for (int i = 0; i < histogram.length(); i++) {
+			seen += histogram.get(i);
+			if (seen >= rank && seen > 0) {
+				return i;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Reads the peak resident set size of the process on Linux.
+	 */
+	private static String readPeakRss() {
+		try {
+			for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+				if (line.startsWith("VmHWM:")) {
+					return line.substring("VmHWM:".length()).trim();
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			// Not available on this platform
+		}
+		return "n/a";
+	}
+}
@@ -0,0 +1,445 @@
+package com.o3.server.loadtest;
+
+import com.o3.server.benchmark.WfsResponses;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * End-to-end load generator. Starts the server in its own JVM against a temporary database and keystore,
+ * serves canned WFS responses on port 4001, registers synthetic users and drives a mix of requests over
+ * keep-alive TLS connections. Reports throughput, latency percentiles and errors per endpoint.
+ * Run from the project root with the test classpath, configured with system properties:
+ * <pre>
+ * load.port         Server port (8002)
+ * load.users        Synthetic users (20)
+ * load.seedRecords  Records created per user before the run, used by PUT requests (20)
+ * load.concurrency  Concurrent clients (32)
+ * load.warmup       Warm-up seconds excluded from the results (5)
+ * load.duration     Measured seconds (30)
+ * load.mix          Weights of the operations ("post=30,put=10,get=30,search=30")
+ * load.weatherRatio Share of POST requests asking for weather data (0.5)
+ * load.pageSize     Page size of GET and search requests (50)
+ * load.wfsLatency   Latency of the WFS stub in milliseconds (50)
+ * load.serverOpts   JVM options of the server, e.g. "-Dserver.executor=virtual -Xmx512m"
+ * </pre>
+ */
+public class LoadGenerator {
+
+	private static final int port = Integer.getInteger("load.port", 8002);
+	private static final int userCount = Integer.getInteger("load.users", 20);
+	private static final int seedRecords = Integer.getInteger("load.seedRecords", 20);
+	private static final int concurrency = Integer.getInteger("load.concurrency", 32);
+	private static final int warmup = Integer.getInteger("load.warmup", 5);
+	private static final int duration = Integer.getInteger("load.duration", 30);
+	private static final String mix = System.getProperty("load.mix", "post=30,put=10,get=30,search=30");
+	private static final double weatherRatio = Double.parseDouble(System.getProperty("load.weatherRatio", "0.5"));
+	private static final int pageSize = Integer.getInteger("load.pageSize", 50);
+	private static final long wfsLatency = Long.getLong("load.wfsLatency", 50);
+	private static final String serverOpts = System.getProperty("load.serverOpts", "");
+
+	private static final int WFS_PORT = 4001;	// Fixed in WeatherService
+	private static final String STORE_PASSWORD = "loadtest";
+
+	private enum Operation { POST, PUT, GET, SEARCH }
+
+	private record SyntheticUser(String username, String nickname, String authorization, List<Integer> recordIds) {
+	}
+
+	/**
+	 * Latency and status counts of one operation. Latencies are counted in 100 microsecond buckets up to 30 s.
+	 */
+	private static class EndpointStats {
+		private static final long BUCKET_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+		private static final int BUCKETS = 300_000;
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS + 1);
+		private final LongAdder requests = new LongAdder();
+		private final LongAdder errors = new LongAdder();
+		private final AtomicLong maxNanos = new AtomicLong();
+		private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+		private void record(int status, long nanos) {
+			requests.increment();
+			if (status < 200 || status >= 300) {
+				errors.increment();
+			}
+			statuses.computeIfAbsent(status, k -> new LongAdder()).increment();
+			buckets.incrementAndGet((int) Math.min(nanos / BUCKET_NANOS, BUCKETS));
+			maxNanos.accumulateAndGet(nanos, Math::max);
+		}
+
+		private double percentileMillis(double percentile) {
+			long total = requests.sum();
+			long rank = (long) Math.ceil(total * percentile);
+			long seen = 0;
+			for (int i = 0; i <= BUCKETS; i++) {
+				seen += buckets.get(i);
+				if (seen >= rank && seen > 0) {
+					return Math.min((i + 1) * BUCKET_NANOS, maxNanos.get()) / 1e6;
+				}
+			}
+			return 0;
+		}
+	}
+
+	private final HttpClient client;
+	private final URI baseUri = URI.create("https://localhost:" + port);
+	private final Operation[] operations;
+	private final int[] cumulativeWeights;
+	private final Map<Operation, EndpointStats> stats = new ConcurrentHashMap<>();
+	private final List<SyntheticUser> users = new ArrayList<>();
+
+	private LoadGenerator(SSLContext sslContext, ExecutorService executor) {
+		this.client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.sslContext(sslContext)
+			.executor(executor)
+			.connectTimeout(Duration.ofSeconds(10))
+			.build();
+		Map<Operation, Integer> weights = parseMix(mix);
+		this.operations = weights.keySet().toArray(new Operation[0]);
+		this.cumulativeWeights = new int[operations.length];
+		int sum = 0;
+		for (int i = 0; i < operations.length; i++) {
+			sum += weights.get(operations[i]);
+			cumulativeWeights[i] = sum;
+			stats.put(operations[i], new EndpointStats());
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Path dir = Files.createTempDirectory("o3-loadtest");
+		Path keystore = createKeystore(dir);
+		HttpServer wfs = startWfsStub();
+		Process server = startServer(dir, keystore);
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			waitForServer(server);
+			LoadGenerator generator = new LoadGenerator(createSSLContext(keystore), executor);
+			generator.registerUsers();
+			generator.run();
+			generator.report();
+		} finally {
+			server.destroy();
+			server.waitFor(10, TimeUnit.SECONDS);
+			wfs.stop(0);
+			System.out.println("Server log: " + dir.resolve("server.log"));
+		}
+	}
+
+	/**
+	 * Creates a self-signed keystore for localhost with keytool.
+	 */
+	private static Path createKeystore(Path dir) throws IOException, InterruptedException {
+		Path keystore = dir.resolve("keystore.jks");
+		Process keytool = new ProcessBuilder(
+			Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+			"-genkeypair", "-alias", "loadtest", "-keyalg", "RSA", "-keysize", "2048", "-validity", "7",
+			"-dname", "CN=localhost", "-ext", "SAN=dns:localhost,ip:127.0.0.1",
+			"-storetype", "JKS", "-keystore", keystore.toString(),
+			"-storepass", STORE_PASSWORD, "-keypass", STORE_PASSWORD)
+			.redirectErrorStream(true)
+			.redirectOutput(dir.resolve("keytool.log").toFile())
+			.start();
+		if (keytool.waitFor() != 0) {
+			throw new IOException("keytool failed, see " + dir.resolve("keytool.log"));
+		}
+		return keystore;
+	}
+
+	/**
+	 * Trusts only the generated keystore, so the TLS handshake is verified as a real client would do.
+	 */
+	private static SSLContext createSSLContext(Path keystore) throws Exception {
+		KeyStore trustStore = KeyStore.getInstance("JKS");
+		try (InputStream input = Files.newInputStream(keystore)) {
+			trustStore.load(input, STORE_PASSWORD.toCharArray());
+		}
+		TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+		tmf.init(trustStore);
+		SSLContext ssl = SSLContext.getInstance("TLS");
+		ssl.init(null, tmf.getTrustManagers(), null);
+		return ssl;
+	}
+
+	/**
+	 * Serves a canned 24 hour WFS response after the configured latency.
+	 */
+	private static HttpServer startWfsStub() throws IOException {
+		byte[] body = WfsResponses.create(24).getBytes(StandardCharsets.UTF_8);
+		HttpServer wfs = HttpServer.create(new InetSocketAddress("localhost", WFS_PORT), 0);
+		wfs.createContext("/wfs", exchange -> {
+			try {
+				Thread.sleep(wfsLatency);
+				exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=UTF-8");
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream os = exchange.getResponseBody()) {
+					os.write(body);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				exchange.close();
+			}
+		});
+		wfs.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		wfs.start();
+		return wfs;
+	}
+
+	/**
+	 * Starts the server in its own JVM with the test classpath. The working directory stays the project root,
+	 * where the server reads its schema and models.
+	 */
+	private static Process startServer(Path dir, Path keystore) throws IOException {
+		List<String> command = new ArrayList<>();
+		command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add("-Dserver.port=" + port);
+		command.add("-Dserver.database=" + dir.resolve("messages.db"));
+		for (String option : serverOpts.trim().split("\\s+")) {
+			if (!option.isEmpty()) {
+				command.add(option);
+			}
+		}
+		command.add("com.o3.server.Server");
+		command.add(keystore.toString());
+		command.add(STORE_PASSWORD);
+		return new ProcessBuilder(command)
+			.redirectErrorStream(true)
+			.redirectOutput(dir.resolve("server.log").toFile())
+			.start();
+	}
+
+	private static void waitForServer(Process server) throws IOException, InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (System.nanoTime() < deadline) {
+			if (!server.isAlive()) {
+				throw new IOException("Server exited with code " + server.exitValue());
+			}
+			try {
+				new Socket("localhost", port).close();
+				return;
+			} catch (IOException e) {
+				Thread.sleep(200);
+			}
+		}
+		throw new IOException("Server did not start in 30 seconds");
+	}
+
+	/**
+	 * Registers the synthetic users and creates their seed records through the bulk endpoint.
+	 */
+	private void registerUsers() throws IOException, InterruptedException {
+		String run = Long.toString(System.currentTimeMillis(), 36);
+		for (int i = 0; i < userCount; i++) {
+			String username = "load-" + run + "-" + i;
+			String password = "password-" + i;
+			JSONObject registration = new JSONObject()
+				.put("username", username)
+				.put("password", password)
+				.put("email", username + "@example.com")
+				.put("userNickname", "nick-" + run + "-" + i);
+			HttpResponse<String> response = client.send(jsonRequest("/registration", null)
+				.POST(HttpRequest.BodyPublishers.ofString(registration.toString())).build(),
+				HttpResponse.BodyHandlers.ofString());
+			if (response.statusCode() != 200) {
+				throw new IOException("Registration failed: " + response.statusCode() + " " + response.body());
+			}
+			String authorization = "Basic " + Base64.getEncoder()
+				.encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+			SyntheticUser user = new SyntheticUser(username, registration.getString("userNickname"),
+				authorization, new ArrayList<>());
+			seedRecords(user);
+			users.add(user);
+		}
+		System.out.printf("Registered %d users with %d records each%n", userCount, seedRecords);
+	}
+
+	private void seedRecords(SyntheticUser user) throws IOException, InterruptedException {
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < seedRecords; i++) {
+			body.append(newRecord(false)).append('\n');
+		}
+		HttpResponse<String> response = client.send(HttpRequest.newBuilder(baseUri.resolve("/datarecord/bulk"))
+			.header("Content-Type", "application/x-ndjson")
+			.header("Authorization", user.authorization())
+			.POST(HttpRequest.BodyPublishers.ofString(body.toString())).build(),
+			HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() != 200) {
+			throw new IOException("Seeding records failed: " + response.statusCode() + " " + response.body());
+		}
+		for (String line : response.body().split("\n")) {
+			JSONObject result = new JSONObject(line);
+			if (result.has("id")) {
+				user.recordIds().add(result.getInt("id"));
+			}
+		}
+	}
+
+	/**
+	 * Runs the clients for the warm-up and the measured period. Results of the warm-up are discarded.
+	 */
+	private void run() throws InterruptedException {
+		long start = System.nanoTime();
+		long measureFrom = start + TimeUnit.SECONDS.toNanos(warmup);
+		long end = measureFrom + TimeUnit.SECONDS.toNanos(duration);
+		System.out.printf("Running %d clients for %d s after %d s warm-up, mix %s%n",
+			concurrency, duration, warmup, mix);
+		try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < concurrency; i++) {
+				clients.submit(() -> {
+					while (System.nanoTime() < end) {
+						Operation operation = nextOperation();
+						long requestStart = System.nanoTime();
+						int status;
+						try {
+							status = execute(operation);
+						} catch (IOException e) {
+							status = 0;
+						} catch (InterruptedException e) {
+							return;
+						}
+						if (requestStart >= measureFrom) {
+							stats.get(operation).record(status, System.nanoTime() - requestStart);
+						}
+					}
+				});
+			}
+		}
+	}
+
+	private int execute(Operation operation) throws IOException, InterruptedException {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		SyntheticUser user = users.get(random.nextInt(users.size()));
+		HttpRequest request = switch (operation) {
+			case POST -> jsonRequest("/datarecord", user)
+				.POST(HttpRequest.BodyPublishers.ofString(newRecord(random.nextDouble() < weatherRatio)))
+				.build();
+			case PUT -> jsonRequest("/datarecord?id=" + user.recordIds().get(random.nextInt(user.recordIds().size())),
+				user)
+				.PUT(HttpRequest.BodyPublishers.ofString(new JSONObject()
+					.put("recordDescription", "Updated by load test")
+					.put("updateReason", "Load test").toString()))
+				.build();
+			case GET -> jsonRequest("/datarecord?limit=" + pageSize, user).GET().build();
+			case SEARCH -> {
+				String query = random.nextBoolean()
+					? "nickname=" + users.get(random.nextInt(users.size())).nickname()
+					: "identification=Target-" + random.nextInt(100);
+				yield jsonRequest("/search?" + query + "&limit=" + pageSize, user).GET().build();
+			}
+		};
+		return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+
+	private HttpRequest.Builder jsonRequest(String path, SyntheticUser user) {
+		HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(path))
+			.timeout(Duration.ofSeconds(60))
+			.header("Content-Type", "application/json");
+		if (user != null) {
+			builder.header("Authorization", user.authorization());
+		}
+		return builder;
+	}
+
+	/**
+	 * Creates an observation record. Observatories are spread over Finland, so most weather requests miss
+	 * the weather cache and reach the WFS stub.
+	 */
+	private static String newRecord(boolean withWeather) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		JSONObject record = new JSONObject()
+			.put("recordIdentifier", "Target-" + random.nextInt(100))
+			.put("recordDescription", "Load test observation")
+			.put("recordPayload", "Observation payload " + random.nextLong())
+			.put("recordRightAscension", "12h 30m")
+			.put("recordDeclination", "-2d 10m");
+		if (withWeather) {
+			record.put("observatory", new JSONArray().put(new JSONObject()
+				.put("observatoryName", "Load test observatory")
+				.put("latitude", Math.round((60 + random.nextDouble() * 10) * 100) / 100.0)
+				.put("longitude", Math.round((20 + random.nextDouble() * 10) * 100) / 100.0)));
+			record.put("observatoryWeather", new JSONArray());
+		}
+		return record.toString();
+	}
+
+	private Operation nextOperation() {
+		int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+		for (int i = 0; i < cumulativeWeights.length; i++) {
+			if (value < cumulativeWeights[i]) {
+				return operations[i];
+			}
+		}
+		return operations[operations.length - 1];
+	}
+
+	private static Map<Operation, Integer> parseMix(String mix) {
+		Map<Operation, Integer> weights = new TreeMap<>();
+		for (String part : mix.split(",")) {
+			String[] pair = part.trim().split("=", 2);
+			int weight = Integer.parseInt(pair[1].trim());
+			if (weight > 0) {
+				weights.put(Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)), weight);
+			}
+		}
+		if (weights.isEmpty()) {
+			throw new IllegalArgumentException("Empty operation mix: " + mix);
+		}
+		return weights;
+	}
+
+	private void report() {
+		System.out.printf("%n%-8s %9s %9s %8s %8s %9s %9s %9s %9s  %s%n",
+			"endpoint", "requests", "req/s", "errors", "error%", "p50 ms", "p99 ms", "p999 ms", "max ms", "statuses");
+		long totalRequests = 0;
+		long totalErrors = 0;
+		for (Operation operation : operations) {
+			EndpointStats endpoint = stats.get(operation);
+			long requests = endpoint.requests.sum();
+			long errors = endpoint.errors.sum();
+			totalRequests += requests;
+			totalErrors += errors;
+			System.out.printf(Locale.ROOT, "%-8s %9d %9.1f %8d %8.2f %9.1f %9.1f %9.1f %9.1f  %s%n",
+				operation, requests, requests / (double) duration, errors,
+				requests == 0 ? 0 : 100.0 * errors / requests,
+				endpoint.percentileMillis(0.50), endpoint.percentileMillis(0.99), endpoint.percentileMillis(0.999),
+				endpoint.maxNanos.get() / 1e6, new TreeMap<>(endpoint.statuses));
+		}
+		System.out.printf(Locale.ROOT, "%-8s %9d %9.1f %8d %8.2f%n", "total", totalRequests,
+			totalRequests / (double) duration, totalErrors,
+			totalRequests == 0 ? 0 : 100.0 * totalErrors / totalRequests);
+	}
+}